@@ -1,10 +1,18 @@
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
 public class Card implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
+    private static final String SUITS = "CDHS";
     
-    char suit;
-    int value;
+    final char suit;
+    final int value;
     
     Card(char suit, int value) {
         this.suit = suit;
@@ -19,6 +27,48 @@ public class Card implements Serializable {
         return value;
     }
     
+    // Same one byte code as the server: suit index (C, D, H, S) * 13 + value - 2
+    private Object writeReplace() {
+        return new Packed(SUITS.indexOf(suit) * 13 + value - 2);
+    }
+    
+    // Only a Packed stands for a card on the stream
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Cards are read through Card.Packed");
+    }
+    
+    // What a card is serialized as, the same class the server uses
+    private static final class Packed implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        
+        int code;
+        
+        // Only for deserialization
+        public Packed() {
+        }
+        
+        Packed(int code) {
+            this.code = code;
+        }
+        
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(code);
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            code = in.readUnsignedByte();
+        }
+        
+        private Object readResolve() throws ObjectStreamException {
+            if (code >= 52) {
+                throw new InvalidObjectException("Not a card code: " + code);
+            }
+            return new Card(SUITS.charAt(code / 13), code % 13 + 2);
+        }
+    }
+    
     @Override
     public String toString() {
         String valueStr;
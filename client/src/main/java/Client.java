@@ -1,8 +1,14 @@
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.prefs.Preferences;
 
 import javafx.application.Platform;
 
@@ -11,17 +17,38 @@ public class Client extends Thread {
     String IP;
     int port;
     boolean successfulConnection = false;
-    ObjectInputStream in;
-    ObjectOutputStream out;
+    PokerConnection connection;
     Consumer<Serializable> callback;
-
+    
+    // Every request gets an ID the server echoes back, so several requests can be
+    // in flight at once. Responses nobody registered for go to callback.
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final Map<Integer, Consumer<PokerInfo>> pending = new ConcurrentHashMap<>();
+    
+    // Sends happen on a writer thread so a slow server never blocks the JavaFX thread
+    WriteQueue writer;
+    
+    // While nothing else is sent a heartbeat goes out every heartbeatMillis so the
+    // server does not drop the connection as idle. The server echoes heartbeats, so
+    // hearing nothing for three intervals means it is gone. 0 disables both.
+    long heartbeatMillis = Long.getLong("poker.heartbeat", 15_000);
+    private ScheduledExecutorService heartbeat;
+    private volatile long lastSent = System.nanoTime();
+    
+    // Lasting ID the server keeps this player's wallet under, so cash survives
+    // reconnecting. Kept in the user's preferences, -Dpoker.player overrides it.
+    long playerId = playerIdFromPreferences();
+    
+    // Delta protocol unless -Dpoker.protocol=binary or serialized, falls back automatically for older servers
+    PokerConnection.Mode protocol = protocolFromProperty(System.getProperty("poker.protocol"));
+    
     private ClientGameController gameControllerRef;     // reference to GameController
-
+    
     // method to set the Game Controller reference
     public void setGameController(ClientGameController gameControllerRef) {
         this.gameControllerRef = gameControllerRef;
     }
-
+    
     Client(Consumer<Serializable> call) {
         callback = call;
         this.IP = "127.0.0.1";
@@ -41,12 +68,34 @@ public class Client extends Thread {
     @Override
     public void run() {
         try {
-            socketClient = new Socket(IP, port);
-            out = new ObjectOutputStream(socketClient.getOutputStream());
-            in = new ObjectInputStream(socketClient.getInputStream());
-            socketClient.setTcpNoDelay(true);
+            connection = PokerConnection.connect(IP, port, protocol);
+            socketClient = connection.socket;
+            writer = new WriteQueue(connection,
+                    Integer.getInteger("poker.writeHigh", WriteQueue.DEFAULT_HIGH_WATERMARK),
+                    Integer.getInteger("poker.writeLow", WriteQueue.DEFAULT_LOW_WATERMARK),
+                    Long.getLong("poker.writeStall", WriteQueue.DEFAULT_STALL_MILLIS));
+            writer.start(r -> {
+                Thread thread = new Thread(r, "poker-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (heartbeatMillis > 0) {
+                socketClient.setSoTimeout((int) Math.min(Integer.MAX_VALUE, heartbeatMillis * 3));
+                heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "poker-heartbeat");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+            }
             successfulConnection = true;
             callback.accept("Connected to server");
+            
+            // Answered like a welcome, with the wallet's cash
+            PokerInfo identify = new PokerInfo();
+            identify.buttonPressed = 8;
+            identify.playerId = playerId;
+            send(identify);
         } catch (Exception e) {
             callback.accept("Connection failed: " + e.getMessage());
             successfulConnection = false;
@@ -55,9 +104,21 @@ public class Client extends Thread {
         
         while (true) {
             try {
-                PokerInfo message = (PokerInfo) in.readObject();
-                callback.accept(message);
+                PokerInfo message = connection.read();
+                if (message.buttonPressed == 7) {
+                    continue; // Heartbeat echo, only keeps the read timeout from expiring
+                }
+                // Auto play detail (6) precedes its request's final response
+                Consumer<PokerInfo> handler = message.requestId == 0 ? null
+                        : message.buttonPressed == 6 ? pending.get(message.requestId)
+                        : pending.remove(message.requestId);
+                if (handler != null) {
+                    handler.accept(message);
+                } else {
+                    callback.accept(message);
+                }
             } catch (Exception e) {
+                pending.clear();
                 callback.accept("Connection lost");
                 notifyServerClosed();       // call method when server is closed
                 break;
@@ -66,23 +127,89 @@ public class Client extends Thread {
     }
     
     public void send(PokerInfo pInfo) {
+        send(pInfo, null);
+    }
+    
+    // Sends without waiting for earlier requests to be answered. onResponse, if given,
+    // gets the matching response instead of callback. Returns the request ID.
+    public int send(PokerInfo pInfo, Consumer<PokerInfo> onResponse) {
+        int requestId = nextRequestId.updateAndGet(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
+        pInfo.requestId = requestId;
+        if (onResponse != null) {
+            pending.put(requestId, onResponse);
+        }
+        
         try {
-            out.writeObject(pInfo);
-            out.reset();
+            lastSent = System.nanoTime();
+            if (!writer.offer(pInfo)) {
+                pending.remove(requestId); // The reader sees the closed socket and reports it
+            }
         } catch (Exception e) {
+            pending.remove(requestId);
             callback.accept("Error sending data: " + e.getMessage());
         }
+        return requestId;
     }
-
+    
+    // Sends a heartbeat unless something else went out within the last interval
+    private void sendHeartbeat() {
+        if (System.nanoTime() - lastSent < TimeUnit.MILLISECONDS.toNanos(heartbeatMillis)) {
+            return;
+        }
+        PokerInfo ping = new PokerInfo();
+        ping.buttonPressed = 7;
+        try {
+            lastSent = System.nanoTime();
+            writer.offer(ping);
+        } catch (Exception e) {
+            // The reader notices the broken connection
+        }
+    }
+    
     // private method that notifies client when server is closed
     private void notifyServerClosed() {
-
-        try {
-            socketClient.close();
-        } catch (Exception ignored) {}
-
+        
+        writer.close(); // also stops the writer thread and closes the socket
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        
         if (gameControllerRef != null) {
             Platform.runLater(() -> gameControllerRef.returnToStartAfterDisconnect());
         }
     }
+    
+    // The player ID saved for this user, made up and saved the first time
+    private static long playerIdFromPreferences() {
+        String property = System.getProperty("poker.player");
+        if (property != null) {
+            try {
+                return Long.parseUnsignedLong(property.trim(), 16);
+            } catch (NumberFormatException e) {
+                // Fall back to the saved ID
+            }
+        }
+        try {
+            Preferences preferences = Preferences.userNodeForPackage(Client.class);
+            long id = preferences.getLong("playerId", 0);
+            while (id == 0) {
+                id = new SecureRandom().nextLong();
+                preferences.putLong("playerId", id);
+                preferences.flush();
+            }
+            return id;
+        } catch (Exception e) {
+            return new SecureRandom().nextLong(); // Cash lasts as long as this run
+        }
+    }
+    
+    private static PokerConnection.Mode protocolFromProperty(String value) {
+        if ("serialized".equalsIgnoreCase(value)) {
+            return PokerConnection.Mode.SERIALIZED;
+        }
+        if ("binary".equalsIgnoreCase(value)) {
+            return PokerConnection.Mode.BINARY;
+        }
+        return PokerConnection.Mode.DELTA;
+    }
 }
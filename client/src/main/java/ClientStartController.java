@@ -25,11 +25,12 @@ public class ClientStartController {
     private Client clientConnection;
     private boolean hasTransitioned = false;
     private PokerInfo initialPokerInfo = null;
-
+    private ClientGameController gameController;
+    
     private Client clientRef;
     public void setClient(Client c) { this.clientRef = c; }
-
-
+    
+    
     @FXML
     public void initialize() {
         // Set up focus listeners to clear focus when clicking outside text fields
@@ -77,6 +78,11 @@ public class ClientStartController {
                     // Received initial message from server, switch to game screen
                     initialPokerInfo = (PokerInfo) data;
                     System.out.println("Client received PokerInfo with cash: $" + initialPokerInfo.cash);
+                    if (hasTransitioned && gameController != null && initialPokerInfo.buttonPressed == 0) {
+                        // The answer to identify can arrive before the game screen takes over
+                        gameController.clientPokerInfo.cash = initialPokerInfo.cash;
+                        gameController.updateCashDisplay(initialPokerInfo.cash);
+                    }
                     if (!hasTransitioned) {
                         hasTransitioned = true;
                         try {
@@ -89,7 +95,7 @@ public class ClientStartController {
                 }
             });
         }, ip, port);
-
+        
         clientConnection.start();
         
         // Wait a moment for connection
@@ -112,10 +118,10 @@ public class ClientStartController {
         System.out.println("switchToGameScreen called");
         FXMLLoader loader = new FXMLLoader(getClass().getResource("ClientGame.fxml"));
         Parent root = loader.load();
-
-        ClientGameController gameController = loader.getController();
+        
+        gameController = loader.getController();
         gameController.setClient(clientConnection);
-
+        
         clientConnection.setGameController(gameController);
         
         // Set initial cash from server
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Compact binary form of PokerInfo. Each frame is a 2 byte length followed by
+// the action opcode, flag bits, the numbers, one byte per card code and two
+// bytes per hand value. Cards and hand values are sent as codes and turned
+// back into the same text on the other side.
+// In delta mode a frame carries a mask of the fields that changed since the
+// previous frame in the same direction, followed by just those fields in
+// the full frame's layout. Each side keeps the last body it sent and the
+// last one it received, both starting from a default PokerInfo.
+// A non-zero request ID follows the body of either kind of frame. It is left
+// out of delta comparisons since it changes with every request, and readers
+// that predate it ignore the trailing bytes. Auto play messages always carry
+// the request ID and then the auto play section: rounds, strategy, a detail
+// flag byte, hands played and won, a 2 byte hand count (0xFFFF for none) and
+// one long per hand. Identify messages carry the request ID and then the
+// 8 byte player ID.
+// This file is identical in the client and server modules.
+public class PokerCodec {
+    
+    // Sent by a client to ask for the binary protocol, echoed by the server to accept
+    static final byte[] HELLO = {'T', 'C', 'P', 1};
+    static final byte[] HELLO_DELTA = {'T', 'C', 'P', 2};
+    
+    static final int MAX_FRAME = 4096;
+    static final int NO_CARD = 0xFF;
+    static final int NO_HAND = 0xFF;
+    static final int HIGH_CARD = 5;
+    static final int IDENTIFY = 8;
+    
+    // Full body size and where each delta field starts in it: action, flags,
+    // winner, ante, pair plus, play, cash, winnings, six cards, two hand values
+    static final int BODY_SIZE = 33;
+    private static final int[] FIELD_OFFSETS = {0, 1, 2, 3, 7, 11, 15, 19, 23, 24, 25, 26, 27, 28, 29, 31, BODY_SIZE};
+    private static final byte[] DEFAULT_BODY = new byte[BODY_SIZE];
+    
+    private static final String SUITS = "CDHS";
+    private static final String[] CARD_NAMES = new String[52];
+    
+    // Hand names by ThreeCardLogic.Hands ordinal, high card hands are "<card> High"
+    private static final String[] HAND_NAMES = {"Straight Flush", "Three of a Kind", "Straight", "Flush", "Pair"};
+    private static final String[] HIGH_CARD_NAMES = new String[15];
+    
+    static {
+        for (int code = 0; code < CARD_NAMES.length; code++) {
+            CARD_NAMES[code] = valueText(code % 13 + 2) + SUITS.charAt(code / 13);
+        }
+        String[] faces = {"Jack", "Queen", "King", "Ace"};
+        for (int value = 2; value <= 14; value++) {
+            HIGH_CARD_NAMES[value] = (value <= 10 ? String.valueOf(value) : faces[value - 11]) + " High";
+        }
+        writeBody(new PokerInfo(), ByteBuffer.wrap(DEFAULT_BODY));
+    }
+    
+    // Delta state for one direction of a connection
+    static final class Delta {
+        final byte[] base = DEFAULT_BODY.clone();
+        final byte[] body = new byte[BODY_SIZE];
+    }
+    
+    private PokerCodec() {
+    }
+    
+    // Writes one frame for info at the buffer's position
+    static void writeFrame(PokerInfo info, ByteBuffer out) {
+        int start = out.position();
+        out.putShort((short) 0); // length, filled in below
+        writeBody(info, out);
+        putTrailer(info, out);
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+    
+    // Writes one delta frame holding the fields that differ from the last one sent
+    static void writeDeltaFrame(PokerInfo info, Delta sent, ByteBuffer out) {
+        writeBody(info, ByteBuffer.wrap(sent.body));
+        
+        int start = out.position();
+        out.putInt(0); // length and field mask, filled in below
+        int mask = 0;
+        for (int field = 0; field < FIELD_OFFSETS.length - 1; field++) {
+            int from = FIELD_OFFSETS[field];
+            int to = FIELD_OFFSETS[field + 1];
+            if (!Arrays.equals(sent.body, from, to, sent.base, from, to)) {
+                mask |= 1 << field;
+                out.put(sent.body, from, to - from);
+            }
+        }
+        System.arraycopy(sent.body, 0, sent.base, 0, BODY_SIZE);
+        putTrailer(info, out);
+        
+        out.putShort(start, (short) (out.position() - start - 2));
+        out.putShort(start + 2, (short) mask);
+    }
+    
+    private static void putTrailer(PokerInfo info, ByteBuffer out) {
+        boolean identify = info.buttonPressed == IDENTIFY;
+        boolean autoPlay = !identify && (info.rounds != 0 || info.hands != null);
+        if (info.requestId != 0 || autoPlay || identify) {
+            out.putInt(info.requestId);
+        }
+        if (identify) {
+            out.putLong(info.playerId);
+        } else if (autoPlay) {
+            out.putInt(info.rounds);
+            out.put((byte) info.strategy);
+            out.put((byte) (info.detail ? 1 : 0));
+            out.putInt(info.handsPlayed);
+            out.putInt(info.handsWon);
+            out.putShort((short) (info.hands == null ? 0xFFFF : info.hands.length));
+            if (info.hands != null) {
+                for (long hand : info.hands) {
+                    out.putLong(hand);
+                }
+            }
+        }
+    }
+    
+    // Reads what putTrailer wrote, if anything
+    private static void getTrailer(ByteBuffer in, PokerInfo info) throws IOException {
+        if (in.remaining() < 4) {
+            return;
+        }
+        info.requestId = in.getInt();
+        if (!in.hasRemaining()) {
+            return;
+        }
+        
+        try {
+            if (info.buttonPressed == IDENTIFY) {
+                info.playerId = in.getLong();
+                return;
+            }
+            info.rounds = in.getInt();
+            info.strategy = in.get();
+            info.detail = in.get() != 0;
+            info.handsPlayed = in.getInt();
+            info.handsWon = in.getInt();
+            int count = in.getShort() & 0xFFFF;
+            if (count != 0xFFFF) {
+                if (count > PokerInfo.MAX_HANDS) {
+                    throw new StreamCorruptedException("Too many hands: " + count);
+                }
+                info.hands = new long[count];
+                for (int i = 0; i < count; i++) {
+                    info.hands[i] = in.getLong();
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new StreamCorruptedException("Bad poker frame: " + e);
+        }
+    }
+    
+    private static void writeBody(PokerInfo info, ByteBuffer out) {
+        out.put((byte) info.buttonPressed);
+        out.put((byte) ((info.hang ? 1 : 0) | (info.playOver ? 2 : 0)
+                | (info.playerWon ? 4 : 0) | (info.newRound ? 8 : 0)));
+        out.put((byte) info.winner);
+        out.putInt(info.ante);
+        out.putInt(info.pairPlus);
+        out.putInt(info.play);
+        out.putInt(info.cash);
+        out.putInt(info.winningsThisRound);
+        
+        out.put((byte) cardCode(info.card1));
+        out.put((byte) cardCode(info.card2));
+        out.put((byte) cardCode(info.card3));
+        out.put((byte) cardCode(info.dCard1));
+        out.put((byte) cardCode(info.dCard2));
+        out.put((byte) cardCode(info.dCard3));
+        putHandValue(info.pHandVal, out);
+        putHandValue(info.dHandVal, out);
+    }
+    
+    // Reads a frame body, the length prefix has already been consumed
+    static PokerInfo readBody(ByteBuffer in) throws IOException {
+        try {
+            PokerInfo info = new PokerInfo();
+            info.buttonPressed = in.get();
+            int flags = in.get();
+            info.hang = (flags & 1) != 0;
+            info.playOver = (flags & 2) != 0;
+            info.playerWon = (flags & 4) != 0;
+            info.newRound = (flags & 8) != 0;
+            info.winner = in.get();
+            info.ante = in.getInt();
+            info.pairPlus = in.getInt();
+            info.play = in.getInt();
+            info.cash = in.getInt();
+            info.winningsThisRound = in.getInt();
+            
+            info.card1 = cardText(in.get() & 0xFF);
+            info.card2 = cardText(in.get() & 0xFF);
+            info.card3 = cardText(in.get() & 0xFF);
+            info.dCard1 = cardText(in.get() & 0xFF);
+            info.dCard2 = cardText(in.get() & 0xFF);
+            info.dCard3 = cardText(in.get() & 0xFF);
+            info.pHandVal = handText(in.get() & 0xFF, in.get() & 0xFF);
+            info.dHandVal = handText(in.get() & 0xFF, in.get() & 0xFF);
+            getTrailer(in, info);
+            return info;
+        } catch (RuntimeException e) {
+            throw new StreamCorruptedException("Bad poker frame: " + e);
+        }
+    }
+    
+    // Reads a delta frame body onto the last one received and returns the merged message
+    static PokerInfo readDeltaBody(ByteBuffer in, Delta received) throws IOException {
+        try {
+            int mask = in.getShort() & 0xFFFF;
+            for (int field = 0; field < FIELD_OFFSETS.length - 1; field++) {
+                if ((mask & 1 << field) != 0) {
+                    in.get(received.base, FIELD_OFFSETS[field], FIELD_OFFSETS[field + 1] - FIELD_OFFSETS[field]);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new StreamCorruptedException("Bad poker frame: " + e);
+        }
+        PokerInfo info = readBody(ByteBuffer.wrap(received.base));
+        getTrailer(in, info);
+        return info;
+    }
+    
+    // Card code for text such as "10S" or "AH", NO_CARD if empty or unknown
+    static int cardCode(String card) {
+        if (card == null || card.length() < 2 || card.length() > 3) {
+            return NO_CARD;
+        }
+        
+        int suit = SUITS.indexOf(card.charAt(card.length() - 1));
+        int value;
+        switch (card.charAt(0)) {
+            case 'A': value = 14; break;
+            case 'K': value = 13; break;
+            case 'Q': value = 12; break;
+            case 'J': value = 11; break;
+            default: value = card.charAt(0) - '0'; break;
+        }
+        if (card.length() == 3) {
+            value = card.charAt(1) == '0' && value == 1 ? 10 : -1;
+        }
+        
+        if (suit < 0 || value < 2 || value > 14) {
+            return NO_CARD;
+        }
+        return suit * 13 + value - 2;
+    }
+    
+    static String cardText(int code) {
+        return code < CARD_NAMES.length ? CARD_NAMES[code] : "";
+    }
+    
+    private static void putHandValue(String hand, ByteBuffer out) {
+        if (hand != null) {
+            for (int i = 0; i < HAND_NAMES.length; i++) {
+                if (HAND_NAMES[i].equals(hand)) {
+                    out.put((byte) i).put((byte) 0);
+                    return;
+                }
+            }
+            for (int value = 2; value <= 14; value++) {
+                if (HIGH_CARD_NAMES[value].equals(hand)) {
+                    out.put((byte) HIGH_CARD).put((byte) value);
+                    return;
+                }
+            }
+        }
+        out.put((byte) NO_HAND).put((byte) 0);
+    }
+    
+    private static String handText(int hand, int highCard) {
+        if (hand < HAND_NAMES.length) {
+            return HAND_NAMES[hand];
+        }
+        if (hand == HIGH_CARD && highCard >= 2 && highCard <= 14) {
+            return HIGH_CARD_NAMES[highCard];
+        }
+        return "";
+    }
+    
+    private static String valueText(int value) {
+        switch (value) {
+            case 14: return "A";
+            case 13: return "K";
+            case 12: return "Q";
+            case 11: return "J";
+            default: return String.valueOf(value);
+        }
+    }
+}
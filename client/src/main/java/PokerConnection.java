@@ -0,0 +1,217 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// A socket exchanging PokerInfo messages in the delta or full binary
+// PokerCodec format or Java serialization. A client asks for a binary mode
+// by sending its hello first; a server that does not answer with the same
+// hello (or hangs up) does not know that mode, so the client reconnects
+// with the next older one: delta, then binary, then serialization.
+// This file is identical in the client and server modules.
+public class PokerConnection implements Closeable {
+    
+    enum Mode {
+        DELTA,
+        BINARY,
+        SERIALIZED
+    }
+    
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+    
+    // Messages are written unshared, so their contents never need a reset.
+    // The stream is still reset now and then to keep the handle tables of
+    // both object streams from growing, re-sending class metadata only then.
+    static final int RESET_INTERVAL = 256;
+    
+    final Socket socket;
+    private final Mode mode;
+    private DataInputStream dataIn;
+    private DataOutputStream dataOut;
+    private ByteBuffer frame;
+    private PokerCodec.Delta sent;
+    private PokerCodec.Delta received;
+    private ObjectInputStream objectIn;
+    private ObjectOutputStream objectOut;
+    private ByteArrayOutputStream encoded;
+    private int sinceReset;
+    
+    private PokerConnection(Socket socket, Mode mode) {
+        this.socket = socket;
+        this.mode = mode;
+    }
+    
+    // Server side: works out which protocol the client speaks from its first bytes
+    static PokerConnection accept(Socket socket) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), PokerCodec.HELLO.length);
+        byte[] first = new byte[2];
+        new DataInputStream(in).readFully(first);
+        
+        if (((first[0] & 0xFF) << 8 | (first[1] & 0xFF)) == SERIALIZATION_MAGIC) {
+            in.unread(first);
+            PokerConnection connection = new PokerConnection(socket, Mode.SERIALIZED);
+            connection.openSerialized(in);
+            return connection;
+        }
+        
+        byte[] hello = Arrays.copyOf(first, PokerCodec.HELLO.length);
+        new DataInputStream(in).readFully(hello, first.length, hello.length - first.length);
+        Mode mode;
+        if (Arrays.equals(hello, PokerCodec.HELLO_DELTA)) {
+            mode = Mode.DELTA;
+        } else if (Arrays.equals(hello, PokerCodec.HELLO)) {
+            mode = Mode.BINARY;
+        } else {
+            throw new StreamCorruptedException("Unknown protocol");
+        }
+        
+        PokerConnection connection = new PokerConnection(socket, mode);
+        connection.openBinary(in);
+        connection.dataOut.write(hello);
+        connection.dataOut.flush();
+        return connection;
+    }
+    
+    // Client side: opens a connection, trying binary first when asked for it
+    static PokerConnection connect(String host, int port, Mode preferred) throws IOException {
+        if (preferred == Mode.DELTA) {
+            PokerConnection connection = connectBinary(host, port, Mode.DELTA, PokerCodec.HELLO_DELTA);
+            if (connection != null) {
+                return connection;
+            }
+            preferred = Mode.BINARY;
+        }
+        if (preferred == Mode.BINARY) {
+            PokerConnection connection = connectBinary(host, port, Mode.BINARY, PokerCodec.HELLO);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        PokerConnection connection = new PokerConnection(socket, Mode.SERIALIZED);
+        connection.openSerialized(socket.getInputStream());
+        return connection;
+    }
+    
+    // Returns null if the server does not accept this hello
+    private static PokerConnection connectBinary(String host, int port, Mode mode, byte[] hello) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        socket.getOutputStream().write(hello);
+        
+        PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), hello.length);
+        byte[] reply = new byte[hello.length];
+        try {
+            new DataInputStream(in).readFully(reply);
+        } catch (IOException e) {
+            // Hung up on by a server that does not know this hello
+        }
+        
+        if (!Arrays.equals(reply, hello)) {
+            socket.close();
+            return null;
+        }
+        PokerConnection connection = new PokerConnection(socket, mode);
+        connection.openBinary(in);
+        return connection;
+    }
+    
+    // Sends our stream header right away, then waits for the peer's
+    private void openSerialized(InputStream in) throws IOException {
+        dataOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        encoded = new ByteArrayOutputStream();
+        objectOut = new ObjectOutputStream(encoded);
+        objectOut.flush();
+        writeEncoded(encoded.toByteArray());
+        flush();
+        encoded.reset();
+        objectIn = new ObjectInputStream(in);
+    }
+    
+    private void openBinary(PushbackInputStream in) throws IOException {
+        dataIn = new DataInputStream(in);
+        dataOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        frame = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+        if (mode == Mode.DELTA) {
+            sent = new PokerCodec.Delta();
+            received = new PokerCodec.Delta();
+        }
+    }
+    
+    Mode getMode() {
+        return mode;
+    }
+    
+    PokerInfo read() throws IOException, ClassNotFoundException {
+        if (mode == Mode.SERIALIZED) {
+            return (PokerInfo) objectIn.readUnshared();
+        }
+        
+        int length = dataIn.readUnsignedShort();
+        if (length > PokerCodec.MAX_FRAME) {
+            throw new StreamCorruptedException("Frame too large: " + length);
+        }
+        byte[] body = new byte[length];
+        dataIn.readFully(body);
+        if (mode == Mode.DELTA) {
+            return PokerCodec.readDeltaBody(ByteBuffer.wrap(body), received);
+        }
+        return PokerCodec.readBody(ByteBuffer.wrap(body));
+    }
+    
+    void write(PokerInfo info) throws IOException {
+        writeEncoded(encode(info));
+        flush();
+    }
+    
+    // Encodes a message for writeEncoded. Messages must be written in the order
+    // they were encoded, since both the delta and serialized forms depend on
+    // what was sent before.
+    synchronized byte[] encode(PokerInfo info) throws IOException {
+        if (mode == Mode.SERIALIZED) {
+            objectOut.writeUnshared(info);
+            if (++sinceReset == RESET_INTERVAL) {
+                objectOut.reset();
+                sinceReset = 0;
+            }
+            objectOut.flush();
+            byte[] bytes = encoded.toByteArray();
+            encoded.reset();
+            return bytes;
+        }
+        
+        frame.clear();
+        if (mode == Mode.DELTA) {
+            PokerCodec.writeDeltaFrame(info, sent, frame);
+        } else {
+            PokerCodec.writeFrame(info, frame);
+        }
+        return Arrays.copyOf(frame.array(), frame.position());
+    }
+    
+    // Buffers encoded bytes, flush sends them
+    void writeEncoded(byte[] bytes) throws IOException {
+        dataOut.write(bytes);
+    }
+    
+    void flush() throws IOException {
+        dataOut.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,60 @@
+// Strategies and per hand detail records for the auto play command
+// (buttonPressed 5). Strategies are sent as their ordinal.
+public class AutoPlay {
+    
+    // Most rounds one command plays, keeps a single request from holding a thread for long
+    static final int MAX_ROUNDS = 100_000;
+    
+    // Rank of the weakest Q-6-4 high card hand
+    private static final int QUEEN_SIX_FOUR_RANK = ThreeCardLogic.rank(PackedCards.hand(
+            PackedCards.code('C', 12), PackedCards.code('D', 6), PackedCards.code('H', 4)));
+    
+    enum Strategy {
+        ALWAYS_PLAY,
+        QUEEN_SIX_FOUR;
+        
+        private static final Strategy[] VALUES = values();
+        
+        // Returns the strategy for a wire value, or null if unknown
+        static Strategy of(int ordinal) {
+            return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+        }
+        
+        // Whether to play (rather than fold) a packed hand
+        boolean plays(int hand) {
+            switch (this) {
+                case QUEEN_SIX_FOUR: return ThreeCardLogic.rank(hand) >= QUEEN_SIX_FOUR_RANK;
+                default: return true;
+            }
+        }
+    }
+    
+    private AutoPlay() {
+    }
+    
+    // Packs one hand's detail as described on PokerInfo.hands
+    static long record(int playerHand, int dealerHand, boolean played, int winner, int net) {
+        return playerHand | (long) dealerHand << 18 | (played ? 1L << 36 : 0)
+                | (long) winner << 37 | (long) net << 40;
+    }
+    
+    static int playerHand(long record) {
+        return (int) (record & 0x3FFFF);
+    }
+    
+    static int dealerHand(long record) {
+        return (int) (record >>> 18 & 0x3FFFF);
+    }
+    
+    static boolean played(long record) {
+        return (record & 1L << 36) != 0;
+    }
+    
+    static int winner(long record) {
+        return (int) (record >>> 37 & 3);
+    }
+    
+    static int net(long record) {
+        return (int) (record >> 40);
+    }
+}
@@ -1,16 +1,48 @@
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 
+// Cards are immutable flyweights: there is exactly one instance per suit and
+// value, obtained through Card.of or Card.fromCode, so == compares cards.
 public class Card implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
     
-    char suit;
-    int value;
+    // Canonical cards indexed by their PackedCards code
+    private static final Card[] CARDS = new Card[52];
     
-    Card(char suit, int value) {
+    static {
+        char[] suits = {'C', 'D', 'H', 'S'};
+        for (int code = 0; code < CARDS.length; code++) {
+            CARDS[code] = new Card(suits[code / 13], code % 13 + 2);
+        }
+    }
+    
+    final char suit;
+    final int value;
+    
+    private Card(char suit, int value) {
         this.suit = suit;
         this.value = value;
     }
     
+    // Returns the canonical card for a suit (C, D, H, S) and value (2-14, ace high)
+    public static Card of(char suit, int value) {
+        int code = PackedCards.code(suit, value);
+        if (code < 0) {
+            throw new IllegalArgumentException("Not a card: " + suit + " " + value);
+        }
+        return CARDS[code];
+    }
+    
+    public static Card fromCode(int code) {
+        return CARDS[code];
+    }
+    
     public char getSuit() {
         return suit;
     }
@@ -19,6 +51,53 @@ public class Card implements Serializable {
         return value;
     }
     
+    // Packed card code (see PackedCards)
+    public int code() {
+        return PackedCards.code(suit, value);
+    }
+    
+    // A card goes on the stream as its one byte code, through Packed
+    private Object writeReplace() {
+        return new Packed(code());
+    }
+    
+    // Only a Packed stands for a card on the stream
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Cards are read through Card.Packed");
+    }
+    
+    // What a card is serialized as. Reading one resolves to the canonical card.
+    private static final class Packed implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        
+        int code;
+        
+        // Only for deserialization
+        public Packed() {
+        }
+        
+        Packed(int code) {
+            this.code = code;
+        }
+        
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(code);
+        }
+        
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            code = in.readUnsignedByte();
+        }
+        
+        private Object readResolve() throws ObjectStreamException {
+            if (code >= CARDS.length) {
+                throw new InvalidObjectException("Not a card code: " + code);
+            }
+            return CARDS[code];
+        }
+    }
+    
     @Override
     public String toString() {
         String valueStr;
@@ -2,14 +2,42 @@ import java.util.ArrayList;
 
 public class Dealer {
     Deck theDeck;
+    PackedDeck packedDeck;
+    DeckSupply deckSupply;
+    PackedDeck pooledDeck;
+    Shoe shoe;
     ArrayList<Card> dealersHand;
+    int packedDealersHand;
     
     public Dealer() {
         theDeck = new Deck();
         dealersHand = new ArrayList<>();
     }
     
+    // Deals from a reusable packed deck instead of a Deck of Card objects
+    public Dealer(PackedDeck packedDeck) {
+        this.packedDeck = packedDeck;
+        dealersHand = new ArrayList<>();
+    }
+    
+    // Takes a pre-shuffled deck from the supply each round, falling back to
+    // shuffling its own packed deck inline when the supply is empty
+    public Dealer(PackedDeck packedDeck, DeckSupply deckSupply) {
+        this(packedDeck);
+        this.deckSupply = deckSupply;
+    }
+    
+    // Deals from a multi-deck shoe across rounds, reshuffling only at the cut card
+    public Dealer(Shoe shoe) {
+        this.shoe = shoe;
+        dealersHand = new ArrayList<>();
+    }
+    
     public ArrayList<Card> dealHand() {
+        if (packedDeck != null || shoe != null) {
+            return PackedCards.unpack(dealPackedHand());
+        }
+        
         ArrayList<Card> hand = new ArrayList<>();
         
         if (theDeck.size() < 3) {
@@ -23,6 +51,57 @@ public class Dealer {
         return hand;
     }
     
+    // Deals three cards as a packed hand (see PackedCards)
+    public int dealPackedHand() {
+        if (shoe != null) {
+            return shoe.dealHand();
+        }
+        
+        if (packedDeck == null) {
+            return PackedCards.pack(dealHand());
+        }
+        
+        if (pooledDeck != null && pooledDeck.remaining() < 3) {
+            // Pooled decks belong to the supply's shuffler, keep going on our own deck
+            returnPooledDeck();
+            packedDeck.reset();
+        }
+        
+        PackedDeck deck = pooledDeck != null ? pooledDeck : packedDeck;
+        if (deck.remaining() < 3) {
+            deck.reset();
+        }
+        
+        return deck.dealHand();
+    }
+    
+    // Starts a new round from a full deck
+    public void newRound() {
+        if (shoe != null) {
+            shoe.newRound();
+            return;
+        }
+        
+        if (deckSupply != null) {
+            returnPooledDeck();
+            pooledDeck = deckSupply.take();
+        }
+        
+        if (packedDeck != null) {
+            packedDeck.reset();
+        } else {
+            theDeck.newDeck();
+        }
+    }
+    
+    // Gives the current pre-shuffled deck back to the supply
+    public void returnPooledDeck() {
+        if (pooledDeck != null) {
+            deckSupply.recycle(pooledDeck);
+            pooledDeck = null;
+        }
+    }
+    
     public ArrayList<Card> getDealersHand() {
         return dealersHand;
     }
@@ -30,4 +109,12 @@ public class Dealer {
     public void setDealersHand(ArrayList<Card> hand) {
         this.dealersHand = hand;
     }
+    
+    public int getPackedDealersHand() {
+        return packedDealersHand;
+    }
+    
+    public void setPackedDealersHand(int hand) {
+        this.packedDealersHand = hand;
+    }
 }
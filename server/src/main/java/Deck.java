@@ -1,17 +1,31 @@
 import java.util.ArrayList;
-import java.util.Collections;
 
 public class Deck extends ArrayList<Card> {
     private static final long serialVersionUID = 1L;
     
+    private transient ShuffleRandom random;
+    
     public Deck() {
+        this(ShuffleRandom.threadLocal());
+    }
+    
+    public Deck(ShuffleRandom random) {
+        this.random = random;
         newDeck();
     }
     
     public void newDeck() {
         this.clear();
         populateDeck();
-        Collections.shuffle(this);
+        shuffle();
+    }
+    
+    // Fisher-Yates shuffle with this deck's random source
+    private void shuffle() {
+        for (int i = size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            set(i, set(j, get(i)));
+        }
     }
     
     private void populateDeck() {
@@ -19,7 +33,7 @@ public class Deck extends ArrayList<Card> {
         
         for (char suit : suits) {
             for (int value = 2; value <= 14; value++) {
-                this.add(new Card(suit, value));
+                this.add(Card.of(suit, value));
             }
         }
     }
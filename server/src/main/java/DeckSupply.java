@@ -0,0 +1,80 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps a bounded pool of pre-shuffled decks filled by a low priority
+// background thread, so dealers can skip shuffling on the request path.
+// Dealers hand used decks back with recycle and the producer reshuffles them.
+public class DeckSupply {
+    private final BlockingQueue<PackedDeck> ready;
+    private final BlockingQueue<PackedDeck> spent;
+    private final ShuffleRandom random;
+    private final LongAdder pooledDeals = new LongAdder();
+    private final LongAdder inlineShuffles = new LongAdder();
+    private Thread producer;
+    private volatile boolean running;
+    
+    // The producer shuffles every pooled deck with the given random source
+    public DeckSupply(int capacity, ShuffleRandom random) {
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.spent = new ArrayBlockingQueue<>(capacity);
+        this.random = random;
+    }
+    
+    public void start() {
+        running = true;
+        producer = new Thread(this::produce, "deck-supply");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+    
+    public void stop() {
+        running = false;
+        if (producer != null) {
+            producer.interrupt();
+        }
+    }
+    
+    // Takes a pre-shuffled deck, or returns null if the pool has run dry
+    // and the caller has to shuffle inline
+    public PackedDeck take() {
+        PackedDeck deck = ready.poll();
+        if (deck == null) {
+            inlineShuffles.increment();
+        } else {
+            pooledDeals.increment();
+        }
+        return deck;
+    }
+    
+    // Returns a used deck for reshuffling, dropping it if enough are waiting
+    public void recycle(PackedDeck deck) {
+        spent.offer(deck);
+    }
+    
+    // Number of rounds dealt from a pre-shuffled deck
+    public long getPooledDeals() {
+        return pooledDeals.sum();
+    }
+    
+    // Number of rounds that found the pool empty and shuffled inline
+    public long getInlineShuffles() {
+        return inlineShuffles.sum();
+    }
+    
+    private void produce() {
+        try {
+            while (running) {
+                PackedDeck deck = spent.poll();
+                if (deck == null) {
+                    deck = new PackedDeck(random);
+                }
+                deck.shuffleAll();
+                ready.put(deck);
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+}
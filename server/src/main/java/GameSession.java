@@ -0,0 +1,520 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Game state and round handling for one connected player. Both server
+// engines decode a PokerInfo, pass it to process and send the same object
+// back as the response. Auto play detail is sent ahead of it.
+public class GameSession {
+    static final int STARTING_CASH = 200;
+    static final int MIN_BET = 5;
+    
+    final Server server;
+    final int count;
+    final Closeable connection;
+    Player player;
+    Dealer dealer;
+    volatile long lastActive = System.nanoTime(); // when the last message arrived, for the idle reaper
+    volatile boolean ended;
+    long playerId; // wallet the cash goes in and out of, 0 until the client identifies
+    boolean inRound; // dealt and not yet played or folded
+    
+    GameSession(Server server, int count, Closeable connection, Dealer dealer) {
+        this.server = server;
+        this.count = count;
+        this.connection = connection;
+        this.player = new Player();
+        this.dealer = dealer;
+    }
+    
+    // Builds the message sent when the client connects
+    PokerInfo welcome() {
+        PokerInfo welcome = new PokerInfo();
+        welcome.buttonPressed = 0; // 0 means ready to play
+        welcome.cash = STARTING_CASH; // Starting cash for each player
+        return welcome;
+    }
+    
+    // Sends extra messages ahead of the response to the current request
+    interface Sender {
+        void send(PokerInfo message) throws IOException;
+    }
+    
+    void process(PokerInfo data) {
+        try {
+            process(data, null);
+        } catch (IOException e) {
+            // Nothing is sent without a sender
+        }
+    }
+    
+    // Process the game based on button pressed, updating data in place.
+    // Auto play detail goes out through sender before the response.
+    void process(PokerInfo data, Sender sender) throws IOException {
+        lastActive = System.nanoTime();
+        if (data.buttonPressed == 1) { // Deal button
+            handleDeal(data);
+        } else if (data.buttonPressed == 2) { // Play button
+            handlePlay(data);
+        } else if (data.buttonPressed == 3) { // Fold button
+            handleFold(data);
+        } else if (data.buttonPressed == 4) { // Fresh start
+            handleFreshStart(data);
+        } else if (data.buttonPressed == 5) { // Auto play
+            handleAutoPlay(data, sender);
+        } else if (data.buttonPressed == 8) { // Identify
+            handleIdentify(data);
+        }
+        // Anything else, such as a heartbeat (7), is sent back unchanged
+    }
+    
+    // Closes the connection, which ends the session on either engine
+    void close() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+    
+    // Gives back resources borrowed from the server once the client is gone
+    void release() {
+        ended = true;
+        dealer.returnPooledDeck();
+    }
+    
+    void handleDeal(PokerInfo data) {
+        if (!betsValid(data)) {
+            return;
+        }
+        
+        // Deduct ante and pair plus from player's cash
+        int totalBet = data.ante + data.pairPlus;
+        if (wallets() == null) {
+            player.setTotalWinnings(data.cash);
+        }
+        int left = debit(totalBet);
+        if (left < 0) {
+            server.logMessage("Client {} cannot cover ${} in bets with ${}", count, totalBet, cash());
+            data.cash = cash();
+            return;
+        }
+        data.cash = left;
+        inRound = true;
+        
+        // Set player bets
+        player.setAnteBet(data.ante);
+        player.setPairPlusBet(data.pairPlus);
+        
+        // Deal cards
+        dealer.newRound();
+        int playerHand = dealer.dealPackedHand();
+        int dealerHand = dealer.dealPackedHand();
+        
+        player.setPackedHand(playerHand);
+        dealer.setPackedDealersHand(dealerHand);
+        
+        // Send the player's cards, the dealer's stay hidden until play or fold
+        data.card1 = PackedCards.toString(PackedCards.card(playerHand, 0));
+        data.card2 = PackedCards.toString(PackedCards.card(playerHand, 1));
+        data.card3 = PackedCards.toString(PackedCards.card(playerHand, 2));
+        data.dCard1 = data.dCard2 = data.dCard3 = "";
+        
+        // Evaluate hands
+        data.pHandVal = ThreeCardLogic.getHandDescription(playerHand);
+        data.dHandVal = "";
+        journal(HandJournal.DEALT, 0, (byte) 0, playerHand, dealerHand, data.ante, data.pairPlus, 0, -totalBet, data.cash);
+        
+        server.logMessage("Client {} has dealt Ante = ${}, Pair Plus = ${}. Client {} has {}",
+                count, data.ante, data.pairPlus, count, data.pHandVal);
+    }
+    
+    void handlePlay(PokerInfo data) {
+        if (!inRound(data, "play")) {
+            return;
+        }
+        
+        // Deduct play wager from player's cash (equal to ante)
+        if (debit(player.getAnteBet()) < 0) {
+            server.logMessage("Client {} cannot cover the play wager of ${} with ${}", count, player.getAnteBet(), cash());
+            data.cash = cash();
+            return;
+        }
+        inRound = false;
+        player.setPlayBet(player.getAnteBet());
+        data.play = player.getPlayBet();
+        
+        int playerHand = player.getPackedHand();
+        int dealerHand = dealer.getPackedDealersHand();
+        
+        // Evaluate Pair Plus first
+        int ppReturn = pairPlusReturn(playerHand);
+        if (player.getPairPlusBet() > 0) {
+            if (ppReturn > 0) {
+                server.logMessage("Client {} won pair plus: ${} (total payout: ${})", count, ppReturn - player.getPairPlusBet(), ppReturn);
+            } else {
+                server.logMessage("Client {} lost pair plus bet: ${}", count, player.getPairPlusBet());
+            }
+        }
+        
+        // Check if dealer qualifies, then compare hands
+        boolean dealerQualifies = ThreeCardLogic.dealerQualifies(dealerHand);
+        data.winner = dealerQualifies ? ThreeCardLogic.compareHands(dealerHand, playerHand) : 0;
+        int antePlayReturn = antePlayReturn(dealerQualifies, data.winner);
+        
+        if (!dealerQualifies) {
+            server.logMessage("Client {} dealer does not qualify. Ante (${}) and play (${}) returned", count, player.getAnteBet(), player.getPlayBet());
+        } else if (data.winner == 1) {
+            server.logMessage("Client {} player wins! Payout: ${}", count, antePlayReturn);
+        } else if (data.winner == 2) {
+            server.logMessage("Client {} dealer wins. Client {} lost ante (${}) and play (${})", count, count, player.getAnteBet(), player.getPlayBet());
+        } else {
+            server.logMessage("Client {} has tie game. Ante and play returned", count);
+        }
+        
+        int winnings = ppReturn + antePlayReturn;
+        data.cash = credit(winnings);
+        data.winningsThisRound = winnings - player.getAnteBet() - player.getPlayBet() - player.getPairPlusBet(); // Net earnings for display
+        revealDealerHand(data);
+        journal(HandJournal.PLAYED, data.winner, (byte) 0, playerHand, dealerHand,
+                player.getAnteBet(), player.getPairPlusBet(), player.getPlayBet(), data.winningsThisRound, data.cash);
+        
+        server.logMessage("Client {} total cash: ${}", count, data.cash);
+    }
+    
+    // Pair plus bet plus winnings paid back, 0 if the bet lost or none was made
+    int pairPlusReturn(int playerHand) {
+        int bet = player.getPairPlusBet();
+        if (bet == 0) {
+            return 0;
+        }
+        int won = ThreeCardLogic.evalPPWinnings(playerHand, bet);
+        return won > 0 ? won + bet : 0;
+    }
+    
+    // Ante and play wagers paid back: returned when the dealer does not qualify
+    // or on a tie, paid 1 to 1 when the player wins, lost otherwise
+    int antePlayReturn(boolean dealerQualifies, int winner) {
+        int bets = player.getAnteBet() + player.getPlayBet();
+        if (!dealerQualifies || winner == 0) {
+            return bets;
+        }
+        return winner == 1 ? bets * 2 : 0;
+    }
+    
+    void handleFold(PokerInfo data) {
+        if (!inRound(data, "fold")) {
+            return;
+        }
+        inRound = false;
+        
+        // Ante and Pair Plus already deducted during deal
+        // No refunds when folding
+        data.cash = cash();
+        data.winningsThisRound = 0; // No additional change
+        revealDealerHand(data);
+        journal(HandJournal.FOLDED, 2, (byte) 0, player.getPackedHand(), dealer.getPackedDealersHand(),
+                player.getAnteBet(), player.getPairPlusBet(), 0, -player.getAnteBet() - player.getPairPlusBet(), data.cash);
+        
+        server.logMessage("Client {} folded. Client {} lost ante (${}) and pair plus (${}). Total cash: ${}",
+                count, count, player.getAnteBet(), player.getPairPlusBet(), data.cash);
+    }
+    
+    // Plays up to data.rounds hands with one strategy and no round trips
+    void handleAutoPlay(PokerInfo data, Sender sender) throws IOException {
+        AutoPlayRun run = startAutoPlay(data, sender);
+        if (run != null) {
+            run.play(AutoPlay.MAX_ROUNDS);
+            run.finish();
+        }
+    }
+    
+    // Checks an auto play request and starts its run, or answers it in data
+    // and returns null if it cannot be played. Nothing is played yet.
+    AutoPlayRun startAutoPlay(PokerInfo data, Sender sender) {
+        lastActive = System.nanoTime();
+        AutoPlay.Strategy strategy = AutoPlay.Strategy.of(data.strategy);
+        if (strategy == null || data.rounds < 1 || data.rounds > AutoPlay.MAX_ROUNDS) {
+            server.logMessage("Client {} has invalid auto play request: {} rounds, strategy {}", count, data.rounds, data.strategy);
+            data.rounds = 0;
+            return null;
+        }
+        if (!betsValid(data)) {
+            data.rounds = 0;
+            return null;
+        }
+        if (inRound) {
+            server.logMessage("Client {} cannot auto play with a round in progress", count);
+            data.rounds = 0;
+            data.cash = cash();
+            return null;
+        }
+        
+        if (wallets() == null) {
+            player.setTotalWinnings(data.cash);
+        }
+        player.setAnteBet(data.ante);
+        player.setPairPlusBet(data.pairPlus);
+        return new AutoPlayRun(data, strategy, sender);
+    }
+    
+    // An auto play request being played. The blocking engines play it in one
+    // go; the NIO engine plays it a slice at a time between other clients and
+    // waits while the client is behind on reading the detail.
+    final class AutoPlayRun {
+        final PokerInfo request; // answered in place by finish
+        final AutoPlay.Strategy strategy;
+        final Sender sender;
+        final int ante;
+        final int pairPlus;
+        final int stake;
+        final long[] detail;
+        int detailCount;
+        int cash;
+        int rounds;
+        int handsPlayed;
+        int handsWon;
+        int net;
+        boolean over;
+        
+        private AutoPlayRun(PokerInfo request, AutoPlay.Strategy strategy, Sender sender) {
+            this.request = request;
+            this.strategy = strategy;
+            this.sender = sender;
+            this.ante = request.ante;
+            this.pairPlus = request.pairPlus;
+            // Each round takes the most it can cost up front, the play wager
+            // comes back if the hand is folded
+            this.stake = ante * 2 + pairPlus;
+            this.detail = request.detail && sender != null ? new long[PokerInfo.MAX_HANDS] : null;
+            this.cash = cash();
+        }
+        
+        // Plays up to limit more rounds, sending detail as each chunk fills.
+        // True once the run is over: every requested round was played or the
+        // player cannot cover another one.
+        boolean play(int limit) throws IOException {
+            for (int i = 0; i < limit && !over; i++) {
+                if (rounds == request.rounds || debit(stake) < 0) {
+                    over = true;
+                } else {
+                    playRound();
+                }
+            }
+            if (rounds == request.rounds) {
+                over = true;
+            }
+            if (over && detailCount > 0) {
+                sendDetail(request, cash, detail, detailCount, sender);
+                detailCount = 0;
+            }
+            return over;
+        }
+        
+        // One round whose stake has been taken
+        private void playRound() throws IOException {
+            dealer.newRound();
+            int playerHand = dealer.dealPackedHand();
+            int dealerHand = dealer.dealPackedHand();
+            player.setPackedHand(playerHand);
+            dealer.setPackedDealersHand(dealerHand);
+            
+            boolean played = strategy.plays(playerHand);
+            int returned = pairPlusReturn(playerHand);
+            int winner = 2; // Folding loses to the dealer
+            if (played) {
+                player.setPlayBet(ante);
+                boolean dealerQualifies = ThreeCardLogic.dealerQualifies(dealerHand);
+                winner = dealerQualifies ? ThreeCardLogic.compareHands(dealerHand, playerHand) : 0;
+                returned += antePlayReturn(dealerQualifies, winner);
+                handsPlayed++;
+            } else {
+                player.setPlayBet(0);
+                returned += ante;
+            }
+            
+            int handNet = returned - stake;
+            cash = credit(returned);
+            net += handNet;
+            rounds++;
+            if (played && winner == 1) {
+                handsWon++;
+            }
+            journal(played ? HandJournal.PLAYED : HandJournal.FOLDED, winner, HandJournal.AUTO, playerHand, dealerHand,
+                    ante, pairPlus, player.getPlayBet(), handNet, cash);
+            
+            if (detail != null) {
+                detail[detailCount++] = AutoPlay.record(playerHand, dealerHand, played, winner, handNet);
+                if (detailCount == detail.length) {
+                    sendDetail(request, cash, detail, detailCount, sender);
+                    detailCount = 0;
+                }
+            }
+        }
+        
+        // Fills in the request as the summary answering it
+        void finish() {
+            request.cash = cash;
+            request.winningsThisRound = net;
+            request.rounds = rounds;
+            request.handsPlayed = handsPlayed;
+            request.handsWon = handsWon;
+            request.hands = null;
+            
+            server.logMessage("Client {} auto played {} rounds ({}), played {}, won {}, net ${}. Total cash: ${}",
+                    count, rounds, strategy, handsPlayed, handsWon, net, cash);
+        }
+    }
+    
+    private void sendDetail(PokerInfo request, int cash, long[] detail, int count, Sender sender) throws IOException {
+        PokerInfo chunk = new PokerInfo(request.ante, request.pairPlus, cash);
+        chunk.buttonPressed = 6;
+        chunk.requestId = request.requestId;
+        chunk.hands = Arrays.copyOf(detail, count);
+        sender.send(chunk);
+    }
+    
+    // Binds the session to the wallet of data.playerId, starting one for a new
+    // player, and answers like a welcome with its cash
+    void handleIdentify(PokerInfo data) {
+        WalletStore wallets = server.wallets;
+        data.buttonPressed = 0;
+        if (inRound) {
+            // The round's wagers came out of whatever cash the session had then
+            server.logMessage("Client {} cannot identify with a round in progress", count);
+            data.cash = cash();
+            return;
+        }
+        if (wallets == null || data.playerId == 0) {
+            server.logMessage("Client {} identified, the server keeps no wallets", count);
+            data.cash = STARTING_CASH;
+            return;
+        }
+        playerId = data.playerId;
+        data.cash = wallets.open(playerId, STARTING_CASH);
+        player.setTotalWinnings(data.cash);
+        server.logMessage("Client {} is player {} with ${}", count, Long.toHexString(playerId), data.cash);
+    }
+    
+    // The store holding this player's wallet, null until the client identifies
+    private WalletStore wallets() {
+        return playerId != 0 ? server.wallets : null;
+    }
+    
+    // Cash the player has, from the wallet once the client has identified
+    private int cash() {
+        WalletStore wallets = wallets();
+        if (wallets != null) {
+            player.setTotalWinnings(wallets.balance(playerId));
+        }
+        return player.getTotalWinnings();
+    }
+    
+    // Takes amount from the wallet once the client has identified, otherwise
+    // from the session's cash. Returns the cash left, or -1 without taking
+    // anything if there is not enough.
+    private int debit(int amount) {
+        WalletStore wallets = wallets();
+        if (wallets != null) {
+            int left = wallets.debit(playerId, amount);
+            if (left >= 0) {
+                player.setTotalWinnings(left);
+            }
+            return left;
+        }
+        if (player.getTotalWinnings() < amount) {
+            return -1;
+        }
+        player.setTotalWinnings(player.getTotalWinnings() - amount);
+        return player.getTotalWinnings();
+    }
+    
+    // Pays amount into the wallet once the client has identified, otherwise
+    // into the session's cash, and returns the cash there is now
+    private int credit(int amount) {
+        WalletStore wallets = wallets();
+        if (wallets != null) {
+            player.setTotalWinnings(wallets.add(playerId, amount));
+        } else {
+            player.setTotalWinnings(player.getTotalWinnings() + amount);
+        }
+        return player.getTotalWinnings();
+    }
+    
+    // False, answering with the wallet's cash as it is, unless a round has been dealt
+    private boolean inRound(PokerInfo data, String action) {
+        if (!inRound) {
+            server.logMessage("Client {} has no round in progress to {}", count, action);
+            if (wallets() != null) {
+                data.cash = cash();
+            }
+        }
+        return inRound;
+    }
+    
+    // Adds a round transition to the hand journal, if the server keeps one
+    private void journal(byte type, int winner, byte flags, int playerHand, int dealerHand,
+                         int ante, int pairPlus, int play, int net, int cash) {
+        HandJournal journal = server.journal;
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(count, playerId, type, winner, flags, playerHand, dealerHand, ante, pairPlus, play, net, cash);
+        } catch (IOException e) {
+            server.logMessage("Client {} round not journaled: {}", count, e.getMessage());
+        }
+    }
+    
+    private boolean betsValid(PokerInfo data) {
+        if (data.ante < MIN_BET || data.ante > 25) {
+            server.logMessage("Client {} has invalid ante bet: ${}", count, data.ante);
+            return false;
+        }
+        
+        if (data.pairPlus > 0 && (data.pairPlus < MIN_BET || data.pairPlus > 25)) {
+            server.logMessage("Client {} has invalid pair plus bet: ${}", count, data.pairPlus);
+            return false;
+        }
+        return true;
+    }
+    
+    private void revealDealerHand(PokerInfo data) {
+        int dealerHand = dealer.getPackedDealersHand();
+        data.dCard1 = PackedCards.toString(PackedCards.card(dealerHand, 0));
+        data.dCard2 = PackedCards.toString(PackedCards.card(dealerHand, 1));
+        data.dCard3 = PackedCards.toString(PackedCards.card(dealerHand, 2));
+        data.dHandVal = ThreeCardLogic.getHandDescription(dealerHand);
+    }
+    
+    void handleFreshStart(PokerInfo data) {
+        // Reset player state, the dealer keeps its deck or shoe
+        player = new Player();
+        inRound = false;
+        
+        // A stored wallet keeps its cash, it is only topped up once it cannot
+        // cover the minimum bet. Without one the player starts over.
+        WalletStore wallets = wallets();
+        int cash = STARTING_CASH;
+        if (wallets != null) {
+            int refilled = wallets.refill(playerId, MIN_BET, STARTING_CASH);
+            cash = wallets.balance(playerId);
+            if (refilled > 0) {
+                journal(HandJournal.REFILLED, 0, (byte) 0, 0, 0, 0, 0, 0, refilled, cash);
+                server.logMessage("Client {} wallet refilled with ${}", count, refilled);
+            }
+        }
+        player.setTotalWinnings(cash);
+        
+        // Send fresh welcome message with the cash to start from
+        data.buttonPressed = 0;
+        data.cash = cash;
+        data.ante = 0;
+        data.pairPlus = 0;
+        data.play = 0;
+        data.winningsThisRound = 0;
+        journal(HandJournal.FRESH_START, 0, (byte) 0, 0, 0, 0, 0, 0, 0, cash);
+        
+        server.logMessage("Client {} started fresh game with ${}", count, cash);
+    }
+}
@@ -0,0 +1,394 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Append-only record of every round transition, deal, play, fold and fresh
+// start, as fixed-size binary records in memory-mapped segment files, each
+// named after its first sequence number. Each record carries the player's cash
+// after it, so the last record for a player is the player's state, which is
+// what JournalRecovery rebuilds wallets from after a crash.
+// Appending claims the next sequence number and stores into the mapped pages,
+// with no lock or system call; the sequence number is written last, so a
+// record counts once it matches its slot. A flusher thread forces the written
+// pages to disk every flush interval, one force per group of records, lets
+// go of segments once they are full and maps the next segment ahead of time,
+// so rolling over to it only switches the current segment.
+public class HandJournal implements Closeable {
+    static final int RECORD_SIZE = 64;
+    static final int DEFAULT_SEGMENT_RECORDS = 1 << 20; // 64 MiB files
+    static final long DEFAULT_FLUSH_MILLIS = 200;
+    
+    // Record types
+    static final byte PLAYED = 1;
+    static final byte FOLDED = 2;
+    static final byte DEALT = 3; // ante and pair plus taken, the round is in progress
+    static final byte FRESH_START = 4;
+    static final byte VOIDED = 5; // a round in progress when the server died, wagers returned
+    static final byte REFILLED = 6; // a fresh start topped up a wallet below the minimum bet
+    
+    // Flags
+    static final byte AUTO = 1; // dealt by the auto play command
+    
+    // Record layout, big endian. 60-63 are reserved and zero.
+    static final int SEQUENCE = 0;
+    static final int TIME = 8;
+    static final int SESSION = 16;
+    static final int TYPE = 20;
+    static final int WINNER = 21;
+    static final int FLAGS = 22;
+    static final int PLAYER_HAND = 24;
+    static final int DEALER_HAND = 28;
+    static final int ANTE = 32;
+    static final int PAIR_PLUS = 36;
+    static final int PLAY = 40;
+    static final int NET = 44;
+    static final int CASH = 48;
+    static final int PLAYER = 52; // player ID of the wallet, 0 for a client that has not identified
+    
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final String PREFIX = "hands-";
+    private static final String SUFFIX = ".journal";
+    
+    private final Path dir;
+    private final int segmentRecords;
+    private final long flushNanos;
+    private final AtomicLong nextSequence;
+    private final long resumedAt; // first sequence number appended by this instance
+    private final Map<Long, Segment> open = new ConcurrentHashMap<>();
+    private final AtomicReference<Segment> current = new AtomicReference<>(); // newest segment appended to
+    private final Object mapping = new Object(); // held while mapping, never while forcing
+    private final Thread flusher;
+    private volatile boolean closed;
+    
+    private static final class Segment {
+        final long index;
+        final MappedByteBuffer buffer;
+        final AtomicInteger written = new AtomicInteger();
+        int forced; // records written when last forced, flusher only
+        
+        Segment(long index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+    
+    // One record as read back
+    static final class Entry {
+        long sequence;
+        long timeMillis;
+        int session;
+        long player;
+        byte type;
+        int winner;
+        byte flags;
+        int playerHand;
+        int dealerHand;
+        int ante;
+        int pairPlus;
+        int play;
+        int net;
+        int cash;
+    }
+    
+    // Opens the journal in dir, carrying on after the last complete record
+    HandJournal(Path dir, int segmentRecords, long flushMillis) throws IOException {
+        if (segmentRecords <= 0 || flushMillis <= 0) {
+            throw new IllegalArgumentException("Segment size and flush interval must be positive: "
+                    + segmentRecords + ", " + flushMillis);
+        }
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        Files.createDirectories(dir);
+        this.resumedAt = lastSequence(dir, segmentRecords) + 1;
+        this.nextSequence = new AtomicLong(resumedAt);
+        clearFrom(resumedAt);
+        
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    // Records one round transition. Safe from any thread; returns the record's
+    // sequence number, or 0 if the journal is closed.
+    long append(int session, long player, byte type, int winner, byte flags, int playerHand, int dealerHand,
+                int ante, int pairPlus, int play, int net, int cash) throws IOException {
+        if (closed) {
+            return 0;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        Segment segment = segment((sequence - 1) / segmentRecords);
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = (int) ((sequence - 1) % segmentRecords) * RECORD_SIZE;
+        
+        buffer.putLong(offset + TIME, System.currentTimeMillis());
+        buffer.putInt(offset + SESSION, session);
+        buffer.put(offset + TYPE, type);
+        buffer.put(offset + WINNER, (byte) winner);
+        buffer.put(offset + FLAGS, flags);
+        buffer.putInt(offset + PLAYER_HAND, playerHand);
+        buffer.putInt(offset + DEALER_HAND, dealerHand);
+        buffer.putInt(offset + ANTE, ante);
+        buffer.putInt(offset + PAIR_PLUS, pairPlus);
+        buffer.putInt(offset + PLAY, play);
+        buffer.putInt(offset + NET, net);
+        buffer.putInt(offset + CASH, cash);
+        buffer.putLong(offset + PLAYER, player);
+        LONGS.setRelease(buffer, offset + SEQUENCE, sequence);
+        
+        segment.written.incrementAndGet();
+        return sequence;
+    }
+    
+    private Segment segment(long index) throws IOException {
+        Segment segment = current.get();
+        if (segment != null && segment.index == index) {
+            return segment;
+        }
+        segment = open.get(index);
+        if (segment == null) {
+            segment = map(index); // the flusher has not mapped it yet
+        }
+        Segment was = current.get();
+        while ((was == null || was.index < index) && !current.compareAndSet(was, segment)) {
+            was = current.get();
+        }
+        return segment;
+    }
+    
+    // Maps a segment, normally ahead of time on the flusher thread. An
+    // appender that gets here first only waits for another mapping, not for
+    // a flush forcing pages to disk.
+    private Segment map(long index) throws IOException {
+        synchronized (mapping) {
+            Segment segment = open.get(index);
+            if (segment == null) {
+                try (FileChannel channel = FileChannel.open(segmentPath(dir, index * segmentRecords + 1),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    segment = new Segment(index, channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE));
+                }
+                // Count records already there when carrying on in the middle of a segment
+                long before = resumedAt - 1 - index * segmentRecords;
+                segment.written.set((int) Math.max(0, Math.min(segmentRecords, before)));
+                open.put(index, segment);
+            }
+            return segment;
+        }
+    }
+    
+    // Sequence number the next record will get
+    long nextSequence() {
+        return nextSequence.get();
+    }
+    
+    private void flushLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(this, flushNanos);
+            flush();
+            if (!closed) {
+                mapNext();
+            }
+        }
+    }
+    
+    // Maps the segment after the current one, or the first one to append to
+    private void mapNext() {
+        Segment segment = current.get();
+        long next = segment != null ? segment.index + 1 : (nextSequence.get() - 1) / segmentRecords;
+        if (!open.containsKey(next)) {
+            try {
+                map(next);
+            } catch (IOException e) {
+                // Appending maps it when it gets there
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    // Forces everything written so far to disk and lets go of full segments.
+    // The monitor only keeps the flusher and close apart, appenders never take it.
+    synchronized void flush() {
+        for (Segment segment : new ArrayList<>(open.values())) {
+            int written = segment.written.get();
+            if (written != segment.forced) {
+                segment.buffer.force();
+                segment.forced = written;
+            }
+            if (written == segmentRecords) {
+                open.remove(segment.index);
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        
+        // A segment mapped ahead that no record reached is not left behind
+        long next = nextSequence.get();
+        for (Segment segment : new ArrayList<>(open.values())) {
+            if (segment.index * segmentRecords + 1 >= next) {
+                open.remove(segment.index);
+                try {
+                    Files.deleteIfExists(segmentPath(dir, segment.index * segmentRecords + 1));
+                } catch (IOException e) {
+                    e.printStackTrace(); // an empty segment is skipped when the journal is read
+                }
+            }
+        }
+    }
+    
+    static Path segmentPath(Path dir, long firstSequence) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+    
+    // Segment files in dir, oldest first
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+    
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+    
+    // Reads the complete records of one segment in order, stopping at the first
+    // slot that was never finished. Returns the last sequence number read, or
+    // the one before the segment if it has none.
+    static long read(Path segment, Consumer<Entry> visitor) throws IOException {
+        long expected = firstSequence(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.capacity(); offset += RECORD_SIZE) {
+                if ((long) LONGS.getAcquire(buffer, offset + SEQUENCE) != expected) {
+                    break;
+                }
+                if (visitor != null) {
+                    Entry entry = new Entry();
+                    entry.sequence = expected;
+                    entry.timeMillis = buffer.getLong(offset + TIME);
+                    entry.session = buffer.getInt(offset + SESSION);
+                    entry.player = buffer.getLong(offset + PLAYER);
+                    entry.type = buffer.get(offset + TYPE);
+                    entry.winner = buffer.get(offset + WINNER);
+                    entry.flags = buffer.get(offset + FLAGS);
+                    entry.playerHand = buffer.getInt(offset + PLAYER_HAND);
+                    entry.dealerHand = buffer.getInt(offset + DEALER_HAND);
+                    entry.ante = buffer.getInt(offset + ANTE);
+                    entry.pairPlus = buffer.getInt(offset + PAIR_PLUS);
+                    entry.play = buffer.getInt(offset + PLAY);
+                    entry.net = buffer.getInt(offset + NET);
+                    entry.cash = buffer.getInt(offset + CASH);
+                    visitor.accept(entry);
+                }
+                expected++;
+            }
+        }
+        return expected - 1;
+    }
+    
+    // Reads every complete record in dir in sequence order, stopping at the
+    // first gap. Returns the last sequence number read, 0 for none.
+    static long readAll(Path dir, Consumer<Entry> visitor) throws IOException {
+        long expected = 1;
+        for (Path segment : segments(dir)) {
+            if (firstSequence(segment) != expected) {
+                break;
+            }
+            long last = read(segment, visitor);
+            expected = last + 1;
+            if (expected != firstSequence(segment) + Files.size(segment) / RECORD_SIZE) {
+                break; // an unfinished segment is the end of the journal
+            }
+        }
+        return expected - 1;
+    }
+    
+    // Whether the record with this sequence number is in dir, complete. Always
+    // true for 0, which comes before the first record.
+    static boolean contains(Path dir, long sequence) throws IOException {
+        if (sequence == 0) {
+            return true;
+        }
+        for (Path segment : segments(dir)) {
+            long first = firstSequence(segment);
+            long records = Files.size(segment) / RECORD_SIZE;
+            if (sequence >= first && sequence < first + records) {
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    ByteBuffer record = ByteBuffer.allocate(Long.BYTES);
+                    channel.read(record, (sequence - first) * RECORD_SIZE + SEQUENCE);
+                    return record.flip().remaining() == Long.BYTES && record.getLong() == sequence;
+                }
+            }
+        }
+        return false;
+    }
+    
+    // Records from first on were cut short by a crash. Their sequence numbers
+    // are cleared so that none of them can pass for a record appended later.
+    private void clearFrom(long first) throws IOException {
+        for (Path segment : segments(dir)) {
+            long start = firstSequence(segment);
+            if (start > first) {
+                Files.delete(segment);
+            } else if (start + segmentRecords > first) {
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    for (long slot = first - start; slot < segmentRecords; slot++) {
+                        int offset = (int) slot * RECORD_SIZE + SEQUENCE;
+                        if (buffer.getLong(offset) != 0) { // reading leaves untouched pages sparse
+                            buffer.putLong(offset, 0);
+                        }
+                    }
+                    buffer.force();
+                }
+            }
+        }
+    }
+    
+    // Last complete record in dir, so a reopened journal carries on after it
+    private static long lastSequence(Path dir, int segmentRecords) throws IOException {
+        for (Path segment : segments(dir)) {
+            if (Files.size(segment) != (long) segmentRecords * RECORD_SIZE) {
+                throw new IOException(segment + " does not hold " + segmentRecords
+                        + " records, a journal must keep its segment size");
+            }
+        }
+        return readAll(dir, null);
+    }
+}
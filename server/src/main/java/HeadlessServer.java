@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Runs the server without JavaFX, for boxes with no display. Settings are the
+// poker.* keys ServerConfig reads plus poker.port, taken from system properties,
+// then from the arguments in order, later ones winning:
+//   java -cp target/classes HeadlessServer [--config server.properties] [--port 5555] [poker.engine=nio ...]
+// Log lines go to standard output, and to poker.logFile if set. The server
+// stops on SIGTERM or Ctrl-C.
+public class HeadlessServer {
+    static final int DEFAULT_PORT = 5555;
+    
+    public static void main(String[] args) {
+        Server server;
+        try {
+            Properties settings = settings(args, System.getProperties());
+            server = new Server(ServerConfig.fromProperties(settings), port(settings));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: HeadlessServer [--config file] [--port n] [poker.key=value ...]");
+            System.exit(2);
+            return;
+        }
+        
+        server.addLogSink(WriterLogSink.stdout(System.out));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stopServer, "server-shutdown"));
+        server.startServer(); // The listener threads keep the JVM running
+    }
+    
+    // Layers the arguments over base: --config loads a properties file, --port
+    // sets poker.port and key=value sets one key
+    static Properties settings(String[] args, Properties base) throws IOException {
+        Properties settings = new Properties();
+        settings.putAll(base);
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--config") || arg.equals("--port")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException(arg + " needs a value");
+                }
+                String value = args[++i];
+                if (arg.equals("--port")) {
+                    settings.setProperty("poker.port", value);
+                } else {
+                    try (Reader reader = Files.newBufferedReader(Paths.get(value))) {
+                        settings.load(reader);
+                    } catch (IOException e) {
+                        throw new IOException("Cannot read config file " + value + ": " + e, e);
+                    }
+                }
+            } else if (arg.indexOf('=') > 0) {
+                int split = arg.indexOf('=');
+                settings.setProperty(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        return settings;
+    }
+    
+    static int port(Properties settings) {
+        String value = settings.getProperty("poker.port");
+        if (value == null) {
+            return DEFAULT_PORT;
+        }
+        try {
+            int port = Integer.parseInt(value.trim());
+            if (port >= 1 && port <= 65535) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("poker.port is not a valid port: " + value);
+    }
+}
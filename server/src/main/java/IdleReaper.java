@@ -0,0 +1,126 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Closes sessions that have sent nothing for the idle timeout, so a client
+// that vanished without closing its socket does not hold a thread, a deck and
+// a player forever. One thread ticks a hashed timing wheel with one entry per
+// session. Activity only stamps GameSession.lastActive; when an entry's slot
+// comes round it is moved to the session's new deadline, or the session is
+// closed if there is none.
+public class IdleReaper {
+    static final int DEFAULT_WHEEL_SIZE = 512;
+    
+    private final long idleNanos;
+    private final long tickNanos;
+    private final Slot[] wheel; // only used by the reaper thread
+    private final ConcurrentLinkedQueue<Entry> added = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private Thread thread;
+    private long tick;
+    
+    private static class Entry {
+        final GameSession session;
+        long rounds; // full turns of the wheel left before the entry is due
+        
+        Entry(GameSession session) {
+            this.session = session;
+        }
+    }
+    
+    // The entries due when the wheel comes round to one tick
+    private static final class Slot {
+        final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    }
+    
+    IdleReaper(long idleMillis, long tickMillis, int wheelSize) {
+        if (idleMillis <= 0 || tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Idle timeout, tick and wheel size must be positive: "
+                    + idleMillis + ", " + tickMillis + ", " + wheelSize);
+        }
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Slot[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Slot();
+        }
+    }
+    
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "idle-reaper");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+    
+    // Starts watching a session, safe to call from any thread
+    void watch(GameSession session) {
+        added.add(new Entry(session));
+    }
+    
+    private void run() {
+        long start = System.nanoTime();
+        while (running) {
+            long next = start + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                break;
+            }
+            tick++;
+            long now = System.nanoTime();
+            
+            Entry entry;
+            while ((entry = added.poll()) != null) {
+                schedule(entry, entry.session.lastActive + idleNanos, now);
+            }
+            expire(wheel[(int) (tick % wheel.length)], now);
+        }
+        for (Slot slot : wheel) {
+            slot.entries.clear();
+        }
+        added.clear();
+    }
+    
+    private void expire(Slot slot, long now) {
+        ArrayDeque<Entry> entries = slot.entries;
+        for (int i = entries.size(); i > 0; i--) {
+            Entry entry = entries.poll();
+            if (entry.session.ended) {
+                continue;
+            }
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                entries.add(entry);
+                continue;
+            }
+            long deadline = entry.session.lastActive + idleNanos;
+            if (now - deadline >= 0) {
+                GameSession session = entry.session;
+                session.server.logMessage("Client {} idle for {}s, closing connection",
+                        session.count, TimeUnit.NANOSECONDS.toSeconds(now - session.lastActive));
+                session.close();
+            } else {
+                schedule(entry, deadline, now);
+            }
+        }
+    }
+    
+    // Puts an entry in the slot due at or just after deadline
+    private void schedule(Entry entry, long deadline, long now) {
+        long ticks = Math.max(1, (deadline - now + tickNanos - 1) / tickNanos);
+        entry.rounds = (ticks - 1) / wheel.length;
+        wheel[(int) ((tick + ticks) % wheel.length)].entries.add(entry);
+    }
+}
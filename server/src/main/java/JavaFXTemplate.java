@@ -5,8 +5,6 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class JavaFXTemplate extends Application {
-    
-    private static ServerGameController gameController;
 
 	public static void main(String[] args) {
 		launch(args);
@@ -26,14 +24,4 @@ public class JavaFXTemplate extends Application {
 			System.exit(0);
 		});
 	}
-	
-	public static void updateClientCount(int size) {
-		if (gameController != null) {
-			gameController.updateClientCount(size);
-		}
-	}
-	
-	public static void setGameController(ServerGameController controller) {
-		gameController = controller;
-	}
 }
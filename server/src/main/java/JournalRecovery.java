@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Rebuilds every identified player's state after a restart: the cash and the
+// round in progress, if any. Every journal record carries the cash after it,
+// so a player's state is whatever the last record for them says and segments
+// can be read in parallel, each keeping just the last record per player, then
+// merged oldest first. Reading starts from the newest snapshot, which holds
+// the state of every player as of one sequence number, so only the journal
+// after it is read however many rounds came before.
+public class JournalRecovery {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x54435053; // "TCPS"
+    private static final int HEADER_SIZE = 16; // magic, sequence, player count
+    static final int STATE_SIZE = 32;
+    
+    // One player's state as of the last record for them
+    static final class PlayerState {
+        final long player;
+        int cash;
+        boolean inRound; // dealt and not yet played or folded
+        int ante;
+        int pairPlus;
+        int playerHand;
+        int dealerHand;
+        
+        PlayerState(long player) {
+            this.player = player;
+        }
+        
+        // No round in progress, with cash left
+        void settle(int cash) {
+            this.cash = cash;
+            inRound = false;
+            ante = pairPlus = playerHand = dealerHand = 0;
+        }
+    }
+    
+    static final class Result {
+        final Map<Long, PlayerState> players;
+        final long snapshotSequence; // last record the snapshot covered, 0 without one
+        final long lastSequence; // last record read, the state is as of this one
+        final long replayed; // journal records read after the snapshot
+        
+        Result(Map<Long, PlayerState> players, long snapshotSequence, long lastSequence, long replayed) {
+            this.players = players;
+            this.snapshotSequence = snapshotSequence;
+            this.lastSequence = lastSequence;
+            this.replayed = replayed;
+        }
+    }
+    
+    // What one segment says about the players in it
+    private static final class SegmentState {
+        final Map<Long, PlayerState> players = new HashMap<>();
+        long lastSequence;
+        long replayed;
+    }
+    
+    private JournalRecovery() {
+    }
+    
+    // Reads the newest usable snapshot in dir and the journal records after it,
+    // with up to threads segments read at once
+    static Result recover(Path dir, int threads) throws IOException {
+        Map<Long, PlayerState> players = new HashMap<>();
+        long snapshotSequence = readSnapshot(dir, players);
+        
+        List<Path> tail = new ArrayList<>();
+        long expected = 1;
+        for (Path segment : HandJournal.segments(dir)) {
+            long first = HandJournal.firstSequence(segment);
+            if (first != expected) {
+                break; // a gap, nothing after it was journaled in order
+            }
+            expected = first + Files.size(segment) / HandJournal.RECORD_SIZE;
+            if (expected - 1 > snapshotSequence) {
+                tail.add(segment);
+            }
+        }
+        
+        List<SegmentState> states = readSegments(tail, snapshotSequence, Math.max(1, threads));
+        long lastSequence = snapshotSequence;
+        long replayed = 0;
+        for (int i = 0; i < states.size(); i++) {
+            SegmentState state = states.get(i);
+            players.putAll(state.players);
+            lastSequence = Math.max(lastSequence, state.lastSequence);
+            replayed += state.replayed;
+            long end = HandJournal.firstSequence(tail.get(i)) + Files.size(tail.get(i)) / HandJournal.RECORD_SIZE - 1;
+            if (state.lastSequence != end) {
+                break; // an unfinished segment is the end of the journal
+            }
+        }
+        return new Result(players, snapshotSequence, lastSequence, replayed);
+    }
+    
+    // Recovers the state in dir and writes it as a snapshot, unless nothing was
+    // journaled since the last one. Returns what was recovered.
+    static Result snapshot(Path dir, int threads) throws IOException {
+        Result result = recover(dir, threads);
+        if (result.lastSequence > result.snapshotSequence) {
+            writeSnapshot(dir, result.lastSequence, result.players.values());
+        }
+        return result;
+    }
+    
+    private static List<SegmentState> readSegments(List<Path> segments, long after, int threads) throws IOException {
+        if (segments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(threads, segments.size()), r -> {
+            Thread thread = new Thread(r, "journal-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<SegmentState>> read = new ArrayList<>();
+            for (Path segment : segments) {
+                read.add(readers.submit(() -> readSegment(segment, after)));
+            }
+            List<SegmentState> states = new ArrayList<>();
+            for (Future<SegmentState> state : read) {
+                states.add(state.get());
+            }
+            return states;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the journal", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Cannot read the journal", e.getCause());
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+    
+    private static SegmentState readSegment(Path segment, long after) throws IOException {
+        SegmentState state = new SegmentState();
+        state.lastSequence = HandJournal.read(segment, entry -> {
+            if (entry.sequence <= after) {
+                return;
+            }
+            state.replayed++;
+            if (entry.player != 0) {
+                apply(state.players.computeIfAbsent(entry.player, PlayerState::new), entry);
+            }
+        });
+        return state;
+    }
+    
+    // Makes a player's state what one record says it is
+    static void apply(PlayerState state, HandJournal.Entry entry) {
+        state.settle(entry.cash);
+        if (entry.type == HandJournal.DEALT) {
+            state.inRound = true;
+            state.ante = entry.ante;
+            state.pairPlus = entry.pairPlus;
+            state.playerHand = entry.playerHand;
+            state.dealerHand = entry.dealerHand;
+        }
+    }
+    
+    static Path snapshotPath(Path dir, long sequence) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+    }
+    
+    // Snapshot files in dir, newest first
+    static List<Path> snapshots(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted(Collections.reverseOrder()).collect(Collectors.toList());
+        }
+    }
+    
+    // Writes the players' state as of sequence, then deletes older snapshots.
+    // The file only takes its name once it is complete and on disk.
+    static void writeSnapshot(Path dir, long sequence, Collection<PlayerState> players) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + players.size() * STATE_SIZE + 4);
+        out.putInt(MAGIC);
+        out.putLong(sequence);
+        out.putInt(players.size());
+        for (PlayerState state : players) {
+            out.putLong(state.player);
+            out.putInt(state.cash);
+            out.putInt(state.inRound ? 1 : 0);
+            out.putInt(state.ante);
+            out.putInt(state.pairPlus);
+            out.putInt(state.playerHand);
+            out.putInt(state.dealerHand);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+        out.flip();
+        
+        Path target = snapshotPath(dir, sequence);
+        Path written = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(written, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path older : snapshots(dir)) {
+            if (!older.equals(target)) {
+                Files.delete(older);
+            }
+        }
+    }
+    
+    // Loads the newest snapshot that is intact and whose last record is still in
+    // the journal into players. Returns the sequence it covers, 0 for none.
+    static long readSnapshot(Path dir, Map<Long, PlayerState> players) throws IOException {
+        for (Path snapshot : snapshots(dir)) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (in.remaining() < HEADER_SIZE + 4 || in.getInt() != MAGIC) {
+                continue;
+            }
+            long sequence = in.getLong();
+            int count = in.getInt();
+            if (count < 0 || in.capacity() != HEADER_SIZE + (long) count * STATE_SIZE + 4) {
+                continue;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.array(), 0, in.capacity() - 4);
+            if (in.getInt(in.capacity() - 4) != (int) crc.getValue() || !HandJournal.contains(dir, sequence)) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                PlayerState state = new PlayerState(in.getLong());
+                state.cash = in.getInt();
+                state.inRound = in.getInt() != 0;
+                state.ante = in.getInt();
+                state.pairPlus = in.getInt();
+                state.playerHand = in.getInt();
+                state.dealerHand = in.getInt();
+                players.put(state.player, state);
+            }
+            return sequence;
+        }
+        return 0;
+    }
+}
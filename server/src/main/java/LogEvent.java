@@ -0,0 +1,42 @@
+// One log call as it was made: the time, a pattern with {} placeholders and
+// the values for them. The text is only built by the log thread, the first
+// time a sink asks for it.
+public final class LogEvent {
+    final long timeMillis;
+    private final String pattern;
+    private final Object[] args;
+    private String message;
+    
+    LogEvent(long timeMillis, String pattern, Object[] args) {
+        this.timeMillis = timeMillis;
+        this.pattern = pattern;
+        this.args = args;
+    }
+    
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+    
+    public String message() {
+        if (message == null) {
+            message = format(pattern, args);
+        }
+        return message;
+    }
+    
+    // Replaces each {} with the next argument, extra placeholders are left as they are
+    static String format(String pattern, Object[] args) {
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+        StringBuilder text = new StringBuilder(pattern.length() + 16 * args.length);
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < args.length && (at = pattern.indexOf("{}", from)) >= 0) {
+            text.append(pattern, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        return text.append(pattern, from, pattern.length()).toString();
+    }
+}
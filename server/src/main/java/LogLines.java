@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javafx.collections.ObservableListBase;
+
+// The server log as the ListView sees it: the newest line first, at most
+// capacity lines, kept in a fixed ring. The ListView only asks for the rows
+// it shows, and adding a batch costs one change event however many lines it
+// has, with the oldest lines falling off the end. FX thread only.
+public class LogLines extends ObservableListBase<String> {
+    private final String[] ring;
+    private int newest = -1; // ring index of the newest line
+    private int size;
+    
+    LogLines(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        ring = new String[capacity];
+    }
+    
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return ring[Math.floorMod(newest - index, ring.length)];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    // Puts lines, oldest first, at the top of the list
+    void addNewest(Collection<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        int skip = Math.max(0, lines.size() - ring.length); // would fall off straight away
+        int added = lines.size() - skip;
+        int dropped = Math.max(0, size + added - ring.length);
+        
+        List<String> removed = new ArrayList<>(dropped);
+        for (int i = size - dropped; i < size; i++) {
+            removed.add(get(i));
+        }
+        for (String line : lines) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            newest = (newest + 1) % ring.length;
+            ring[newest] = line;
+        }
+        size += added - dropped;
+        
+        beginChange();
+        if (dropped > 0) {
+            nextRemove(size - added, removed);
+        }
+        nextAdd(0, added);
+        endChange();
+    }
+}
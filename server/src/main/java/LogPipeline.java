@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Carries log events from every session thread to the sinks without a shared
+// lock. Producers claim a slot in a bounded ring with one compare-and-set and
+// never wait: when the ring is full the event is dropped and counted. A single
+// log thread takes events in claim order, formats them and hands each batch to
+// every sink. Events logged before the thread starts wait for it.
+public class LogPipeline {
+    static final int DEFAULT_CAPACITY = 8192;
+    static final int MAX_BATCH = 256;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    // Slot i holds the event claimed at position p once sequences[i] == p + 1,
+    // and is free for position p once sequences[i] == p
+    private final LogEvent[] ring;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only used by the log thread
+    private volatile long delivered; // positions before this have reached the sinks
+    private final LongAdder dropped = new LongAdder();
+    
+    private final List<LogSink> sinks = new CopyOnWriteArrayList<>();
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile boolean parked;
+    
+    LogPipeline(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Log buffer capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        size = size < capacity ? size << 1 : size;
+        ring = new LogEvent[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+    
+    int capacity() {
+        return ring.length;
+    }
+    
+    void addSink(LogSink sink) {
+        sinks.add(sink);
+    }
+    
+    void removeSink(LogSink sink) {
+        sinks.remove(sink);
+    }
+    
+    // Queues an event, safe from any thread. Returns false if it was dropped.
+    boolean log(String pattern, Object... args) {
+        LogEvent event = new LogEvent(System.currentTimeMillis(), pattern, args);
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                dropped.increment(); // The log thread is a full ring behind
+                return false;
+            } else {
+                position = tail.get(); // Another producer took this position
+            }
+        }
+        int slot = (int) position & mask;
+        ring[slot] = event;
+        sequences.set(slot, position + 1);
+        
+        if (parked) {
+            Thread consumer = thread;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+        return true;
+    }
+    
+    void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // Delivers everything logged so far, then stops the log thread
+    void stop() {
+        Thread consumer = thread;
+        if (consumer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+    
+    // Waits until everything logged before the call has reached the sinks
+    void flush() {
+        long target = tail.get();
+        Thread consumer = thread;
+        while (consumer != null && consumer.isAlive() && delivered < target) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+    
+    // Stops the log thread and closes the sinks
+    void close() {
+        stop();
+        for (LogSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        sinks.clear();
+    }
+    
+    private void run() {
+        while (true) {
+            List<LogEvent> batch = drain();
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                delivered = head;
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            parked = true;
+            if (isEmpty() && running) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            parked = false;
+        }
+    }
+    
+    private List<LogEvent> drain() {
+        List<LogEvent> batch = new ArrayList<>();
+        while (batch.size() < MAX_BATCH && !isEmpty()) {
+            int slot = (int) head & mask;
+            batch.add(ring[slot]);
+            ring[slot] = null;
+            sequences.set(slot, head + ring.length);
+            head++;
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            batch.add(new LogEvent(System.currentTimeMillis(),
+                    "{} log messages dropped, the log buffer was full", new Object[] {lost}));
+        }
+        return batch;
+    }
+    
+    private boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+    
+    private void deliver(List<LogEvent> batch) {
+        for (LogSink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (Exception e) {
+                // One broken sink must not stop the others or the log thread
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+import java.io.IOException;
+import java.util.List;
+
+// Somewhere log lines end up. Called only from the log thread, with each batch
+// in the order the events were logged; the sink may keep the list.
+public interface LogSink {
+    
+    void write(List<LogEvent> batch) throws IOException;
+    
+    default void close() throws IOException {
+    }
+}
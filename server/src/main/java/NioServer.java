@@ -0,0 +1,502 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Selector based engine: acceptor threads hand new connections to a few
+// event loops that multiplex every client. Connections speak the binary
+// PokerCodec protocol (full or delta frames) or the Java serialization stream, told apart by their
+// first bytes just like PokerConnection.accept. Game handlers never block, so they run as tasks on the loop
+// that owns the connection and each session is handled by one thread. Auto
+// play, the one long handler, is played a slice per loop turn.
+public class NioServer {
+    static final int MAX_MESSAGE_BYTES = 64 * 1024;
+    static final long STALL_CHECK_MILLIS = 1000;
+    
+    // Per loop buffer binary frames are encoded into before being copied to their exact size
+    private static final ThreadLocal<ByteBuffer> FRAME_SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(PokerCodec.MAX_FRAME));
+    
+    private final Server server;
+    private final EventLoop[] loops;
+    private final List<ServerSocketChannel> listeners = new CopyOnWriteArrayList<>();
+    private Thread acceptor;
+    private volatile boolean running;
+    
+    public NioServer(Server server, int loopCount) {
+        this.server = server;
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+    }
+    
+    public void start() {
+        running = true;
+        acceptor = new Thread(this::open, "nio-acceptor-0");
+        acceptor.start();
+    }
+    
+    public void stop() {
+        running = false;
+        closeListeners();
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+    
+    // Binds the listeners, starts the loops, then accepts on this thread and
+    // the other acceptors
+    private void open() {
+        try {
+            int acceptors = server.config.acceptorCount();
+            for (int i = 0; i < (server.config.reusePort() ? acceptors : 1); i++) {
+                ServerSocketChannel listener = ServerSocketChannel.open();
+                listeners.add(listener);
+                if (server.config.reusePort()) {
+                    listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                listener.bind(new InetSocketAddress(server.port), server.config.acceptBacklog);
+            }
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop(i);
+                loops[i].start();
+            }
+            if (!running) {
+                closeListeners(); // stopped while binding
+                return;
+            }
+            server.logStartup();
+            
+            for (int i = 1; i < acceptors; i++) {
+                int index = i;
+                new Thread(() -> accept(index), "nio-acceptor-" + i).start();
+            }
+            accept(0);
+        } catch (Exception e) {
+            if (running) {
+                server.logMessage("Server socket did not launch: " + e.getMessage());
+                e.printStackTrace();
+            }
+            closeListeners();
+        }
+    }
+    
+    // Each acceptor deals connections out to the loops round robin, starting at
+    // a different loop, so acceptors share nothing
+    private void accept(int index) {
+        ServerSocketChannel listener = listeners.get(index % listeners.size());
+        int next = index % loops.length;
+        try {
+            while (running) {
+                SocketChannel channel = listener.accept();
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        } catch (IOException e) {
+            if (running) {
+                server.logMessage("Acceptor stopped: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void closeListeners() {
+        for (ServerSocketChannel listener : listeners) {
+            try {
+                listener.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+    
+    class EventLoop extends Thread {
+        final Selector selector;
+        final ConcurrentLinkedQueue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(8192);
+        final ArrayDeque<Connection> autoPlaying = new ArrayDeque<>(); // runs with a slice to play, loop thread only
+        
+        EventLoop(int index) throws IOException {
+            super("nio-loop-" + index);
+            this.selector = Selector.open();
+        }
+        
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+        
+        // Runs task on this loop, for other threads touching its connections
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+        
+        public void run() {
+            try {
+                long lastStallCheck = System.nanoTime();
+                while (running) {
+                    if (autoPlaying.isEmpty()) {
+                        selector.select(STALL_CHECK_MILLIS);
+                    } else {
+                        selector.selectNow();
+                    }
+                    
+                    long now = System.nanoTime();
+                    if (now - lastStallCheck >= TimeUnit.MILLISECONDS.toNanos(STALL_CHECK_MILLIS)) {
+                        dropStalled(now);
+                        lastStallCheck = now;
+                    }
+                    
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        open(channel);
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read(readBuffer);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (Exception e) {
+                            connection.close();
+                        }
+                    }
+                    continueAutoPlay();
+                }
+            } catch (IOException e) {
+                server.logMessage("Event loop stopped: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+        
+        // Plays one slice of every auto play run that is waiting for a turn.
+        // Runs scheduled meanwhile wait for the next turn.
+        private void continueAutoPlay() {
+            for (int i = autoPlaying.size(); i > 0; i--) {
+                Connection connection = autoPlaying.poll();
+                connection.scheduled = false;
+                try {
+                    connection.continueAutoPlay();
+                } catch (Exception e) {
+                    connection.close();
+                }
+            }
+        }
+        
+        // Closes connections whose client has stopped reading
+        private void dropStalled(long now) {
+            for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                Connection connection = (Connection) key.attachment();
+                if (connection.stalled(now)) {
+                    if (connection.session != null) {
+                        server.logMessage("Client {} stopped reading, dropping connection", connection.session.count);
+                    }
+                    connection.close();
+                }
+            }
+        }
+        
+        private void open(SocketChannel channel) {
+            Connection connection = null;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connection = new Connection(channel, server.config, this);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                Connection opened = connection;
+                // Sessions may be closed from other threads, such as the idle reaper
+                connection.session = server.addClient(() -> execute(opened::close));
+            } catch (Exception e) {
+                if (connection != null) {
+                    connection.close();
+                } else {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+    
+    // One client connection owned by a single event loop
+    static class Connection {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        final ByteBuffer in = ByteBuffer.allocate(PokerCodec.MAX_FRAME + 2);
+        PokerConnection.Mode mode; // null until the first bytes arrive
+        StreamDecoder decoder;
+        PokerCodec.Delta sent;
+        PokerCodec.Delta received;
+        ByteArrayOutputStream outBytes;
+        ObjectOutputStream out;
+        int sinceReset;
+        SelectionKey key;
+        GameSession session;
+        boolean closed;
+        
+        // Auto play is played a slice per loop turn so other clients are not
+        // held up. Reading stops meanwhile and requests already read wait.
+        final EventLoop loop;
+        GameSession.AutoPlayRun autoPlay;
+        final ArrayDeque<PokerInfo> deferred = new ArrayDeque<>();
+        boolean scheduled; // in the loop's autoPlaying queue
+        
+        // Reading stops while more than the high watermark of bytes waits to go
+        // out and resumes once they drain to the low watermark
+        final ServerConfig config;
+        int outboundBytes;
+        boolean readPaused;
+        long pausedSince;
+        
+        Connection(SocketChannel channel, ServerConfig config, EventLoop loop) {
+            this.channel = channel;
+            this.config = config;
+            this.loop = loop;
+        }
+        
+        void read(ByteBuffer readBuffer) throws IOException, ClassNotFoundException {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            
+            if (mode == null && !detectMode(readBuffer)) {
+                return;
+            }
+            
+            if (mode == PokerConnection.Mode.SERIALIZED) {
+                decoder.append(readBuffer);
+                Object message;
+                while ((message = decoder.poll()) != null) {
+                    handle((PokerInfo) message);
+                }
+            } else {
+                // A read can hold many pipelined frames, more than in holds. Take
+                // what fits, decode the whole frames and go again until all is
+                // taken; in always has room for the rest of a frame it started.
+                while (readBuffer.hasRemaining() && !closed) {
+                    int taken = Math.min(readBuffer.remaining(), in.remaining());
+                    in.put(readBuffer.slice(readBuffer.position(), taken));
+                    readBuffer.position(readBuffer.position() + taken);
+                    in.flip();
+                    while (in.remaining() >= 2) {
+                        int length = in.getShort(in.position()) & 0xFFFF;
+                        if (length > PokerCodec.MAX_FRAME) {
+                            throw new StreamCorruptedException("Frame too large: " + length);
+                        }
+                        if (in.remaining() < 2 + length) {
+                            break;
+                        }
+                        in.getShort();
+                        ByteBuffer body = in.slice();
+                        body.limit(length);
+                        in.position(in.position() + length);
+                        handle(mode == PokerConnection.Mode.DELTA
+                                ? PokerCodec.readDeltaBody(body, received)
+                                : PokerCodec.readBody(body));
+                    }
+                    in.compact();
+                }
+            }
+        }
+        
+        // Picks the protocol from the client's first bytes, false until enough have arrived
+        private boolean detectMode(ByteBuffer readBuffer) throws IOException {
+            while (in.position() < PokerCodec.HELLO.length && readBuffer.hasRemaining()) {
+                in.put(readBuffer.get());
+                if (in.position() == 1 && (in.get(0) & 0xFF) == 0xAC) {
+                    break; // First byte of the serialization header
+                }
+            }
+            
+            in.flip();
+            if ((in.get(0) & 0xFF) == 0xAC) {
+                mode = PokerConnection.Mode.SERIALIZED;
+                decoder = new StreamDecoder(MAX_MESSAGE_BYTES);
+                decoder.append(in);
+                outBytes = new ByteArrayOutputStream();
+                out = new ObjectOutputStream(outBytes); // stream header goes out with the first message
+            } else if (in.remaining() < PokerCodec.HELLO.length) {
+                in.compact();
+                return false;
+            } else {
+                byte[] hello = new byte[PokerCodec.HELLO.length];
+                in.get(hello);
+                if (Arrays.equals(hello, PokerCodec.HELLO_DELTA)) {
+                    mode = PokerConnection.Mode.DELTA;
+                    sent = new PokerCodec.Delta();
+                    received = new PokerCodec.Delta();
+                } else if (Arrays.equals(hello, PokerCodec.HELLO)) {
+                    mode = PokerConnection.Mode.BINARY;
+                } else {
+                    throw new StreamCorruptedException("Unknown protocol");
+                }
+                queue(ByteBuffer.wrap(hello));
+            }
+            in.clear();
+            
+            PokerInfo welcome = session.welcome();
+            send(welcome);
+            session.server.logMessage("Client {} sent welcome message with ${} cash", session.count, welcome.cash);
+            return true;
+        }
+        
+        private void handle(PokerInfo data) throws IOException {
+            if (autoPlay != null) {
+                deferred.add(data); // answered in order once the run is over
+                return;
+            }
+            if (data.buttonPressed == 5) {
+                autoPlay = session.startAutoPlay(data, this::send);
+                if (autoPlay != null) {
+                    schedule();
+                    flush(); // stops reading
+                    return;
+                }
+            } else {
+                session.process(data, this::send);
+            }
+            send(data);
+        }
+        
+        // Plays the next slice of the auto play run, unless the client is
+        // behind on reading its detail, then flush schedules it once caught up.
+        // A finished run is answered and the requests behind it handled.
+        void continueAutoPlay() throws IOException {
+            if (closed || autoPlay == null || readPaused) {
+                return;
+            }
+            if (!autoPlay.play(PokerInfo.MAX_HANDS)) {
+                schedule();
+                return;
+            }
+            autoPlay.finish();
+            PokerInfo response = autoPlay.request;
+            autoPlay = null;
+            send(response);
+            while (autoPlay == null && !deferred.isEmpty() && !closed) {
+                handle(deferred.poll());
+            }
+        }
+        
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                loop.autoPlaying.add(this);
+            }
+        }
+        
+        void send(PokerInfo data) throws IOException {
+            if (mode == PokerConnection.Mode.SERIALIZED) {
+                out.writeUnshared(data);
+                if (++sinceReset == PokerConnection.RESET_INTERVAL) {
+                    out.reset();
+                    sinceReset = 0;
+                }
+                out.flush();
+                queue(ByteBuffer.wrap(outBytes.toByteArray()));
+                outBytes.reset();
+            } else {
+                ByteBuffer scratch = FRAME_SCRATCH.get();
+                scratch.clear();
+                if (mode == PokerConnection.Mode.DELTA) {
+                    PokerCodec.writeDeltaFrame(data, sent, scratch);
+                } else {
+                    PokerCodec.writeFrame(data, scratch);
+                }
+                scratch.flip();
+                queue(ByteBuffer.allocate(scratch.remaining()).put(scratch).flip());
+            }
+            flush();
+        }
+        
+        private void queue(ByteBuffer buffer) {
+            outbound.add(buffer);
+            outboundBytes += buffer.remaining();
+            if (!readPaused && outboundBytes > config.writeHighWatermark) {
+                readPaused = true;
+                pausedSince = System.nanoTime();
+            }
+        }
+        
+        void flush() throws IOException {
+            while (!outbound.isEmpty()) {
+                ByteBuffer buffer = outbound.peek();
+                outboundBytes -= channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                outbound.poll();
+            }
+            if (readPaused && outboundBytes <= config.writeLowWatermark) {
+                readPaused = false;
+                if (autoPlay != null) {
+                    schedule();
+                }
+            }
+            boolean reading = !readPaused && autoPlay == null;
+            key.interestOps((reading ? SelectionKey.OP_READ : 0) | (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+        
+        // True once reading has been paused for longer than the stall timeout
+        boolean stalled(long now) {
+            return readPaused && now - pausedSince > TimeUnit.MILLISECONDS.toNanos(config.writeStallMillis);
+        }
+        
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            if (session != null) {
+                session.server.logMessage("Client {} disconnected", session.count);
+                session.release();
+                session.server.removeClient(session);
+            }
+        }
+    }
+}
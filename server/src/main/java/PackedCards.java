@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+
+// Primitive card and hand encodings used on hot paths instead of Card objects.
+// A card code is suit * 13 + (value - 2) with suits ordered C, D, H, S, so it
+// fits in a byte (0-51). A packed hand holds three card codes in 6 bits each,
+// first card in the low bits. A hand mask is a long with one bit per card code.
+public class PackedCards {
+
+    public static final int CARDS_IN_DECK = 52;
+
+    private static final char[] SUITS = {'C', 'D', 'H', 'S'};
+    private static final String[] NAMES = new String[CARDS_IN_DECK];
+
+    static {
+        for (int code = 0; code < CARDS_IN_DECK; code++) {
+            NAMES[code] = Card.fromCode(code).toString();
+        }
+    }
+
+    private PackedCards() {
+    }
+
+    // Returns the code for a suit and value, or -1 if it is not a standard card
+    public static int code(char suit, int value) {
+        if (value < 2 || value > 14) {
+            return -1;
+        }
+
+        switch (suit) {
+            case 'C': return value - 2;
+            case 'D': return 13 + value - 2;
+            case 'H': return 26 + value - 2;
+            case 'S': return 39 + value - 2;
+            default: return -1;
+        }
+    }
+
+    // Returns the code for a card, or -1 if it is not a standard card
+    public static int code(Card card) {
+        return code(card.getSuit(), card.getValue());
+    }
+
+    public static char suit(int code) {
+        return SUITS[code / 13];
+    }
+
+    public static int value(int code) {
+        return code % 13 + 2;
+    }
+
+    // Same text as Card.toString, cached per code
+    public static String toString(int code) {
+        return NAMES[code];
+    }
+
+    public static Card toCard(int code) {
+        return Card.fromCode(code);
+    }
+
+    // Packs three card codes into one int
+    public static int hand(int c0, int c1, int c2) {
+        return c0 | c1 << 6 | c2 << 12;
+    }
+
+    // Returns card i (0-2) of a packed hand
+    public static int card(int hand, int i) {
+        return (hand >>> (i * 6)) & 0x3F;
+    }
+
+    // Packs a three card hand, returns -1 if it has non standard cards
+    public static int pack(ArrayList<Card> hand) {
+        int c0 = code(hand.get(0));
+        int c1 = code(hand.get(1));
+        int c2 = code(hand.get(2));
+        if (c0 < 0 || c1 < 0 || c2 < 0) {
+            return -1;
+        }
+        return hand(c0, c1, c2);
+    }
+
+    public static ArrayList<Card> unpack(int hand) {
+        ArrayList<Card> cards = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            cards.add(toCard(card(hand, i)));
+        }
+        return cards;
+    }
+
+    // Converts a packed hand to a mask with one bit per card
+    public static long mask(int hand) {
+        return 1L << card(hand, 0) | 1L << card(hand, 1) | 1L << card(hand, 2);
+    }
+
+    // Converts a mask holding exactly three cards to a packed hand, lowest card first
+    public static int fromMask(long mask) {
+        int c0 = Long.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        int c1 = Long.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        int c2 = Long.numberOfTrailingZeros(mask);
+        return hand(c0, c1, c2);
+    }
+}
@@ -0,0 +1,69 @@
+// Deck of card codes (see PackedCards) in a reusable array. Cards are
+// shuffled lazily: each deal runs one Fisher-Yates step over the cards not
+// yet dealt, so a round only pays for the cards it uses and never allocates.
+// A deck can also be shuffled ahead of time with shuffleAll, after which
+// dealing just reads cards in order.
+public class PackedDeck {
+    private final int[] cards = new int[PackedCards.CARDS_IN_DECK];
+    private final ShuffleRandom random;
+    private int dealt;
+    private int shuffled; // positions already fixed by shuffleAll
+    
+    public PackedDeck() {
+        this(ShuffleRandom.threadLocal());
+    }
+    
+    public PackedDeck(ShuffleRandom random) {
+        this.random = random;
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = i;
+        }
+    }
+    
+    // Puts every card back. The array always holds all 52 codes, so the
+    // remaining Fisher-Yates steps still give a uniform shuffle.
+    public void reset() {
+        dealt = 0;
+        shuffled = 0;
+    }
+    
+    // Puts every card back and shuffles the whole deck now, so later
+    // deals never touch the random source
+    public void shuffleAll() {
+        reset();
+        for (int i = 0; i < cards.length - 1; i++) {
+            swap(i, i + random.nextInt(cards.length - i));
+        }
+        shuffled = cards.length;
+    }
+    
+    public int remaining() {
+        return cards.length - dealt;
+    }
+    
+    // Deals one random card code from the cards not yet dealt
+    public int deal() {
+        if (dealt == cards.length) {
+            throw new IllegalStateException("Deck is empty");
+        }
+        
+        if (dealt >= shuffled) {
+            swap(dealt, dealt + random.nextInt(cards.length - dealt));
+        }
+        return cards[dealt++];
+    }
+    
+    // Deals three cards as a packed hand
+    public int dealHand() {
+        int c0 = deal();
+        int c1 = deal();
+        int c2 = deal();
+        return PackedCards.hand(c0, c1, c2);
+    }
+    
+    private void swap(int i, int j) {
+        int card = cards[j];
+        cards[j] = cards[i];
+        cards[i] = card;
+    }
+}
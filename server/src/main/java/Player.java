@@ -2,6 +2,7 @@ import java.util.ArrayList;
 
 public class Player {
     ArrayList<Card> hand;
+    int packedHand;
     int anteBet;
     int playBet;
     int pairPlusBet;
@@ -23,6 +24,14 @@ public class Player {
         this.hand = hand;
     }
     
+    public int getPackedHand() {
+        return packedHand;
+    }
+    
+    public void setPackedHand(int packedHand) {
+        this.packedHand = packedHand;
+    }
+    
     public int getAnteBet() {
         return anteBet;
     }
@@ -1,7 +1,14 @@
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
-public class PokerInfo implements Serializable {
-    private static final long serialVersionUID = 1L;
+public class PokerInfo implements Externalizable {
+    private static final long serialVersionUID = 4L;
+    
+    // Most hands one auto play detail message carries
+    static final int MAX_HANDS = 256;
     
     int ante;
     int pairPlus;
@@ -12,7 +19,7 @@ public class PokerInfo implements Serializable {
     boolean playOver;
     boolean playerWon;
     boolean newRound;
-    int buttonPressed; // 1=deal, 2=play, 3=fold, 4=fresh start
+    int buttonPressed; // 1=deal, 2=play, 3=fold, 4=fresh start, 5=auto play, 6=auto play detail, 7=heartbeat, 8=identify
     
     String card1;
     String card2;
@@ -25,7 +32,27 @@ public class PokerInfo implements Serializable {
     String pHandVal;
     String dHandVal;
     
-    PokerInfo() {
+    int requestId; // echoed in the response, 0 for messages nobody waits on
+    
+    // Auto play: the request asks for rounds hands with strategy (0=always play,
+    // 1=play Q-6-4 or better) and optionally per hand detail. The summary has
+    // the rounds actually played, how many were played and won, the net in
+    // winningsThisRound and the final cash. Detail arrives first in messages
+    // with buttonPressed 6, one long per hand: player and dealer packed hands
+    // in bits 0-17 and 18-35, played in bit 36, winner in bits 37-38 and the
+    // signed net in bits 40-63.
+    int rounds;
+    int strategy;
+    boolean detail;
+    int handsPlayed;
+    int handsWon;
+    long[] hands;
+    
+    // Identify: the client's lasting player ID, which the server keeps a wallet
+    // under. The answer is a welcome with the wallet's cash.
+    long playerId;
+    
+    public PokerInfo() {
         ante = 0;
         pairPlus = 0;
         cash = 200;
@@ -51,4 +78,90 @@ public class PokerInfo implements Serializable {
         pairPlus = pp;
         cash = c;
     }
+    
+    // Fields are written one by one so no class metadata or String objects
+    // go on the stream besides the PokerInfo class descriptor
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(ante);
+        out.writeInt(pairPlus);
+        out.writeInt(cash);
+        out.writeInt(play);
+        out.writeInt(winningsThisRound);
+        out.writeBoolean(hang);
+        out.writeBoolean(playOver);
+        out.writeBoolean(playerWon);
+        out.writeBoolean(newRound);
+        out.writeInt(buttonPressed);
+        
+        writeText(out, card1);
+        writeText(out, card2);
+        writeText(out, card3);
+        writeText(out, dCard1);
+        writeText(out, dCard2);
+        writeText(out, dCard3);
+        
+        out.writeInt(winner);
+        writeText(out, pHandVal);
+        writeText(out, dHandVal);
+        out.writeInt(requestId);
+        
+        out.writeInt(rounds);
+        out.writeInt(strategy);
+        out.writeBoolean(detail);
+        out.writeInt(handsPlayed);
+        out.writeInt(handsWon);
+        out.writeInt(hands == null ? -1 : hands.length);
+        if (hands != null) {
+            for (long hand : hands) {
+                out.writeLong(hand);
+            }
+        }
+        out.writeLong(playerId);
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        ante = in.readInt();
+        pairPlus = in.readInt();
+        cash = in.readInt();
+        play = in.readInt();
+        winningsThisRound = in.readInt();
+        hang = in.readBoolean();
+        playOver = in.readBoolean();
+        playerWon = in.readBoolean();
+        newRound = in.readBoolean();
+        buttonPressed = in.readInt();
+        
+        card1 = in.readUTF();
+        card2 = in.readUTF();
+        card3 = in.readUTF();
+        dCard1 = in.readUTF();
+        dCard2 = in.readUTF();
+        dCard3 = in.readUTF();
+        
+        winner = in.readInt();
+        pHandVal = in.readUTF();
+        dHandVal = in.readUTF();
+        requestId = in.readInt();
+        
+        rounds = in.readInt();
+        strategy = in.readInt();
+        detail = in.readBoolean();
+        handsPlayed = in.readInt();
+        handsWon = in.readInt();
+        int count = in.readInt();
+        if (count > MAX_HANDS) {
+            throw new InvalidObjectException("Too many hands: " + count);
+        }
+        hands = count < 0 ? null : new long[count];
+        for (int i = 0; i < count; i++) {
+            hands[i] = in.readLong();
+        }
+        playerId = in.readLong();
+    }
+    
+    private static void writeText(ObjectOutput out, String text) throws IOException {
+        out.writeUTF(text == null ? "" : text);
+    }
 }
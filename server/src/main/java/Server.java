@@ -1,26 +1,62 @@
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class Server {
-    int count = 1;
-    ArrayList<ClientThread> clients = new ArrayList<>();
+    final AtomicInteger nextId = new AtomicInteger(1);
+    final SessionRegistry clients = new SessionRegistry();
     TheServer server;
-    private Consumer<Serializable> callback;
+    NioServer nioServer;
+    private final List<ServerListener> listeners = new CopyOnWriteArrayList<>();
     int port;
     public boolean isRunning = false;
+    ServerConfig config;
+    ShuffleRandomFactory randoms;
+    DeckSupply deckSupply;
+    IdleReaper reaper;
+    ExecutorService shoeShuffler;
+    
+    // Log calls from every thread go through here to the listeners and other
+    // sinks. Its thread starts with the server and then keeps running, so
+    // sessions that end after a stop are still logged.
+    final LogPipeline log;
+    private LogSink logFile;
+    volatile HandJournal journal; // null unless poker.journal is set
+    volatile WalletStore wallets; // null unless poker.wallets is set
+    
+    public Server(ServerConfig config, int port) {
+        this.config = config;
+        this.port = port;
+        this.log = new LogPipeline(config.logBufferSize);
+        log.addSink(batch -> {
+            for (ServerListener listener : listeners) {
+                listener.logMessages(batch);
+            }
+        });
+    }
     
     public Server(Consumer<Serializable> call) {
-        callback = call;
-        this.port = 5555;
+        this(ServerConfig.fromSystemProperties(), 5555);
+        listeners.add(call::accept);
     }
     
     public Server(Consumer<Serializable> call, String text) {
-        callback = call;
+        this(call);
         try {
             this.port = Integer.parseInt(text);
         } catch (NumberFormatException e) {
@@ -28,11 +64,78 @@ public class Server {
         }
     }
     
+    public void addListener(ServerListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(ServerListener listener) {
+        listeners.remove(listener);
+    }
+    
+    public void addLogSink(LogSink sink) {
+        log.addSink(sink);
+    }
+    
+    public void removeLogSink(LogSink sink) {
+        log.removeSink(sink);
+    }
+    
     public void startServer() {
         if (!isRunning) {
-            server = new TheServer();
-            server.start();
+            log.start();
+            if (config.logFile != null) {
+                try {
+                    logFile = WriterLogSink.file(Paths.get(config.logFile));
+                    log.addSink(logFile);
+                } catch (IOException e) {
+                    logMessage("Cannot open log file {}: {}", config.logFile, e.getMessage());
+                }
+            }
+            randoms = new ShuffleRandomFactory(config.shuffleMode, config.shuffleSeed);
+            
+            if (config.shoeDecks > 0) {
+                shoeShuffler = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "shoe-shuffler");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+            } else if (config.deckPoolSize > 0 && config.shuffleMode != ShuffleRandom.Mode.SEEDED) {
+                // Seeded replays need each session to shuffle its own deck in order
+                deckSupply = new DeckSupply(config.deckPoolSize, randoms.next());
+                deckSupply.start();
+            }
+            if (config.journalDir != null) {
+                try {
+                    journal = new HandJournal(Paths.get(config.journalDir), config.journalSegmentRecords, config.journalFlushMillis);
+                    logMessage("Journaling rounds to {} from #{}", config.journalDir, journal.nextSequence());
+                } catch (IOException | RuntimeException e) {
+                    logMessage("Cannot open hand journal {}: {}", config.journalDir, e.getMessage());
+                }
+            }
+            if (config.walletDir != null) {
+                try {
+                    wallets = new WalletStore(Paths.get(config.walletDir));
+                    logMessage("Keeping {} player wallets in {}", wallets.size(), config.walletDir);
+                } catch (IOException | RuntimeException e) {
+                    logMessage("Cannot open wallet store {}: {}", config.walletDir, e.getMessage());
+                }
+            }
+            if (journal != null) {
+                recover(Paths.get(config.journalDir));
+            }
+            if (config.idleTimeoutMillis > 0) {
+                reaper = new IdleReaper(config.idleTimeoutMillis, config.reaperTickMillis, IdleReaper.DEFAULT_WHEEL_SIZE);
+                reaper.start();
+            }
             isRunning = true;
+            if (config.engine == ServerConfig.Engine.NIO) {
+                nioServer = new NioServer(this, config.nioLoops);
+                nioServer.start();
+            } else {
+                server = new TheServer();
+                server.start();
+            }
         }
     }
     
@@ -40,259 +143,302 @@ public class Server {
         if (isRunning) {
             try {
                 isRunning = false;
-                for (ClientThread client : clients) {
+                List<GameSession> open = clients.removeAll();
+                for (GameSession client : open) {
+                    client.close();
+                }
+                if (!open.isEmpty()) {
+                    notifyClientCount();
+                }
+                nextId.set(1);      // reset client count when server is disabled
+                if (deckSupply != null) {
+                    deckSupply.stop();
+                    logMessage("Deck pool dealt {} rounds, {} rounds shuffled inline",
+                            deckSupply.getPooledDeals(), deckSupply.getInlineShuffles());
+                    deckSupply = null;
+                }
+                if (reaper != null) {
+                    reaper.stop();
+                    reaper = null;
+                }
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
                     try {
-                        client.connection.close();
-                    } catch (Exception e) {
-                        // Ignore
+                        // The next start then only reads what is journaled from here on
+                        JournalRecovery.snapshot(Paths.get(config.journalDir), config.recoveryThreads);
+                    } catch (IOException e) {
+                        logMessage("Cannot snapshot hand journal {}: {}", config.journalDir, e.getMessage());
                     }
                 }
-                clients.clear();
-                count = 1;      // reset client count when server is disabled
-                if (server != null && server.mysocket != null) {
-                    server.mysocket.close();
+                if (wallets != null) {
+                    wallets.close();
+                    wallets = null;
+                }
+                if (shoeShuffler != null) {
+                    shoeShuffler.shutdownNow();
+                    shoeShuffler = null;
+                }
+                if (server != null) {
+                    server.close();
+                    server = null;
+                }
+                if (nioServer != null) {
+                    nioServer.stop();
+                    nioServer = null;
                 }
-                callback.accept("Server stopped");
+                logMessage("Server stopped");
             } catch (Exception e) {
-                callback.accept("Error stopping server: " + e.getMessage());
+                logMessage("Error stopping server: " + e.getMessage());
+            }
+            log.flush();
+            if (logFile != null) {
+                log.removeSink(logFile);
+                try {
+                    logFile.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+                logFile = null;
+            }
+        }
+    }
+    
+    // Rebuilds players' wallets from the journal before any client connects.
+    // Rounds that were in progress when the server died are voided and their
+    // wagers returned, their connections are gone. A snapshot of the result
+    // means the next start only reads what is journaled from now on.
+    private void recover(Path dir) {
+        try {
+            long start = System.nanoTime();
+            JournalRecovery.Result result = JournalRecovery.recover(dir, config.recoveryThreads);
+            int voided = 0;
+            for (JournalRecovery.PlayerState state : result.players.values()) {
+                if (state.inRound) {
+                    int wagers = state.ante + state.pairPlus;
+                    journal.append(0, state.player, HandJournal.VOIDED, 0, (byte) 0, state.playerHand, state.dealerHand,
+                            state.ante, state.pairPlus, 0, wagers, state.cash + wagers);
+                    state.settle(state.cash + wagers);
+                    voided++;
+                }
+                if (wallets != null) {
+                    wallets.set(state.player, state.cash);
+                }
             }
+            if (result.lastSequence > result.snapshotSequence || voided > 0) {
+                JournalRecovery.writeSnapshot(dir, journal.nextSequence() - 1, result.players.values());
+            }
+            logMessage("Recovered {} players from snapshot #{} and {} journal records in {} ms, {} rounds in progress voided",
+                    result.players.size(), result.snapshotSequence, result.replayed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), voided);
+        } catch (IOException | RuntimeException e) {
+            logMessage("Cannot recover from hand journal {}: {}", dir, e.getMessage());
         }
     }
     
-    public synchronized int getClientCount() {
+    public int getClientCount() {
         return clients.size();
     }
     
-    // Synchronized method to log messages in proper order
-    private synchronized void logMessage(String message) {
-        callback.accept(message);
+    // Queues a log line without waiting. Each {} in pattern is replaced by the
+    // next argument on the log thread, so hot paths pass values rather than
+    // building the text.
+    void logMessage(String pattern, Object... args) {
+        log.log(pattern, args);
     }
     
-    // Synchronized method to remove client
-    private synchronized void removeClient(ClientThread client) {
-        clients.remove(client);
-        JavaFXTemplate.updateClientCount(clients.size());
+    // Registers a new client session. Called by every acceptor thread, none of
+    // this takes a lock: ids and shuffle seeds come from atomic counters and
+    // the registry and log queue are concurrent.
+    GameSession addClient(Closeable connection) {
+        int id = nextId.getAndIncrement();
+        GameSession session = new GameSession(this, id, connection, newDealer());
+        if (reaper != null) {
+            reaper.watch(session);
+        }
+        clients.add(session);
+        logMessage("Client {} has connected to server", id);
+        notifyClientCount();
+        return session;
+    }
+    
+    // Removes a client session
+    void removeClient(GameSession client) {
+        if (clients.remove(client)) {
+            notifyClientCount();
+        }
+    }
+    
+    // Connects and disconnects on other threads can overtake this, so listeners
+    // may see counts out of order; getClientCount always has the current one
+    private void notifyClientCount() {
+        int count = clients.size();
+        for (ServerListener listener : listeners) {
+            listener.clientCountChanged(count);
+        }
+    }
+    
+    // Builds the dealer for a new session from the configured deck mode
+    Dealer newDealer() {
+        if (shoeShuffler != null) {
+            return new Dealer(new Shoe(config.shoeDecks, config.shoePenetration, randoms.next(), shoeShuffler));
+        }
+        PackedDeck deck = new PackedDeck(randoms.next());
+        return deckSupply != null ? new Dealer(deck, deckSupply) : new Dealer(deck);
+    }
+    
+    // Logs the settings the server started with
+    void logStartup() {
+        logMessage("Server is waiting for a client on port " + port);
+        if (config.acceptorCount() > 1) {
+            logMessage("Accepting on " + config.acceptorCount() + " threads"
+                    + (config.reusePort() ? " with one SO_REUSEPORT listener each" : " sharing one listener"));
+        }
+        logMessage("Shuffling with " + randoms.getMode() + " random source");
+    }
+    
+    // Opens the listening socket for one acceptor
+    ServerSocket openListener() throws IOException {
+        ServerSocket listener = new ServerSocket();
+        if (config.reusePort()) {
+            listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        listener.bind(new InetSocketAddress(port), config.acceptBacklog);
+        return listener;
     }
     
+    // Opens the listeners and accepts on config.acceptors threads, this one included
     class TheServer extends Thread {
-        ServerSocket mysocket;
+        final List<ServerSocket> listeners = new CopyOnWriteArrayList<>();
+        
+        TheServer() {
+            super("acceptor-0");
+        }
         
         public void run() {
             try {
-                mysocket = new ServerSocket(port);
-                Server.this.logMessage("Server is waiting for a client on port " + port);
+                int acceptors = config.acceptorCount();
+                for (int i = 0; i < (config.reusePort() ? acceptors : 1); i++) {
+                    listeners.add(openListener());
+                }
+                if (!isRunning) {
+                    close(); // stopped while binding
+                    return;
+                }
+                Server.this.logStartup();
                 
-                while (isRunning) {
-                    ClientThread c = new ClientThread(mysocket.accept(), count);
-                    synchronized (Server.this) {
-                        callback.accept("Client " + count + " has connected to server");
-                        clients.add(c);
-                        count++;
-                        JavaFXTemplate.updateClientCount(clients.size());
-                    }
-                    c.start();
+                for (int i = 1; i < acceptors; i++) {
+                    ServerSocket listener = listeners.get(i % listeners.size());
+                    new Thread(() -> accept(listener), "acceptor-" + i).start();
                 }
+                accept(listeners.get(0));
             } catch (Exception e) {
                 if (isRunning) {
                     Server.this.logMessage("Server socket did not launch: " + e.getMessage());
                     e.printStackTrace();
                 }
+                close();
+            }
+        }
+        
+        private void accept(ServerSocket listener) {
+            boolean virtual = config.engine == ServerConfig.Engine.VIRTUAL;
+            try {
+                while (isRunning) {
+                    Socket socket = listener.accept();
+                    ClientThread c = new ClientThread(socket, Server.this.addClient(socket), virtual);
+                    Thread thread = virtual ? Thread.ofVirtual().unstarted(c) : new Thread(c);
+                    thread.setName("client-" + c.count);
+                    thread.start();
+                }
+            } catch (IOException e) {
+                if (isRunning) {
+                    Server.this.logMessage("Acceptor stopped: " + e.getMessage());
+                }
+            }
+        }
+        
+        void close() {
+            for (ServerSocket listener : listeners) {
+                try {
+                    listener.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
             }
         }
     }
     
-    class ClientThread extends Thread {
+    // Runs one client session on a platform or virtual thread. Responses go
+    // through a WriteQueue drained by a second thread of the same kind.
+    class ClientThread implements Runnable {
         Socket connection;
         int count;
-        ObjectInputStream in;
-        ObjectOutputStream out;
-        Player player;
-        Dealer dealer;
+        boolean virtual;
+        PokerConnection channel;
+        WriteQueue writer;
+        GameSession session;
         
-        ClientThread(Socket s, int count) {
+        ClientThread(Socket s, GameSession session, boolean virtual) {
             this.connection = s;
-            this.count = count;
-            this.player = new Player();
-            this.dealer = new Dealer();
+            this.count = session.count;
+            this.session = session;
+            this.virtual = virtual;
         }
         
+        // The session is released and removed however the connection ends,
+        // including a handshake that never completes
         public void run() {
             try {
-                out = new ObjectOutputStream(connection.getOutputStream());
-                in = new ObjectInputStream(connection.getInputStream());
-                connection.setTcpNoDelay(true);
-                
-                // Send initial welcome message to client
-                PokerInfo welcome = new PokerInfo();
-                welcome.buttonPressed = 0; // 0 means ready to play
-                welcome.cash = 200; // Starting cash for each player
-                out.writeObject(welcome);
-                out.reset();
-                Server.this.logMessage("Client " + count + " sent welcome message with $200 starting cash");
-            } catch (Exception e) {
-                Server.this.logMessage("Streams not open for client " + count);
-                return;
-            }
-            
-            while (true) {
                 try {
-                    PokerInfo data = (PokerInfo) in.readObject();
-                    
-                    // Process the game based on button pressed
-                    if (data.buttonPressed == 1) { // Deal button
-                        handleDeal(data);
-                    } else if (data.buttonPressed == 2) { // Play button
-                        handlePlay(data);
-                    } else if (data.buttonPressed == 3) { // Fold button
-                        handleFold(data);
-                    } else if (data.buttonPressed == 4) { // Fresh start
-                        handleFreshStart(data);
-                    }
-                    
-                    out.writeObject(data);
-                    out.reset();
+                    connection.setTcpNoDelay(true);
+                    channel = PokerConnection.accept(connection);
+                    writer = new WriteQueue(channel, config.writeHighWatermark, config.writeLowWatermark, config.writeStallMillis);
+                    String name = "client-" + count + "-writer";
+                    writer.start(virtual ? Thread.ofVirtual().name(name).factory() : Thread.ofPlatform().name(name).factory());
                     
+                    // Send initial welcome message to client
+                    PokerInfo welcome = session.welcome();
+                    send(welcome);
+                    Server.this.logMessage("Client {} sent welcome message with ${} cash", count, welcome.cash);
                 } catch (Exception e) {
-                    Server.this.logMessage("Client " + count + " disconnected");
-                    Server.this.removeClient(this);
-                    break;
-                }
-            }
-        }
-        
-        private void handleDeal(PokerInfo data) {
-            // Validate bets
-            if (data.ante < 5 || data.ante > 25) {
-                Server.this.logMessage("Client " + count + " has invalid ante bet: $" + data.ante);
-                return;
-            }
-            
-            if (data.pairPlus > 0 && (data.pairPlus < 5 || data.pairPlus > 25)) {
-                Server.this.logMessage("Client " + count + " has invalid pair plus bet: $" + data.pairPlus);
-                return;
-            }
-            
-            // Deduct ante and pair plus from player's cash
-            int totalBet = data.ante + data.pairPlus;
-            player.setTotalWinnings(data.cash - totalBet);
-            data.cash = player.getTotalWinnings();
-            
-            // Set player bets
-            player.setAnteBet(data.ante);
-            player.setPairPlusBet(data.pairPlus);
-            
-            // Deal cards
-            dealer.theDeck.newDeck();
-            ArrayList<Card> playerHand = dealer.dealHand();
-            ArrayList<Card> dealerHand = dealer.dealHand();
-            
-            player.setHand(playerHand);
-            dealer.setDealersHand(dealerHand);
-            
-            // Send cards to client
-            data.card1 = playerHand.get(0).toString();
-            data.card2 = playerHand.get(1).toString();
-            data.card3 = playerHand.get(2).toString();
-            data.dCard1 = dealerHand.get(0).toString();
-            data.dCard2 = dealerHand.get(1).toString();
-            data.dCard3 = dealerHand.get(2).toString();
-            
-            // Evaluate hands
-            data.pHandVal = ThreeCardLogic.getHandDescription(playerHand);
-            data.dHandVal = ThreeCardLogic.getHandDescription(dealerHand);
-            
-            Server.this.logMessage("Client " + count + " has dealt Ante = $" + data.ante + 
-                          ", Pair Plus = $" + data.pairPlus + ". Client " + count + " has " + data.pHandVal);
-        }
-        
-        private void handlePlay(PokerInfo data) {
-            // Deduct play wager from player's cash (equal to ante)
-            player.setPlayBet(player.getAnteBet());
-            data.play = player.getPlayBet();
-            player.setTotalWinnings(player.getTotalWinnings() - data.play);
-            
-            int winnings = 0;
-            int netEarnings = 0; // Track net profit/loss for display
-            ArrayList<Card> playerHand = player.getHand();
-            ArrayList<Card> dealerHand = dealer.getDealersHand();
-            
-            // Evaluate Pair Plus first
-            if (player.getPairPlusBet() > 0) {
-                int ppWinnings = ThreeCardLogic.evalPPWinnings(playerHand, player.getPairPlusBet());
-                if (ppWinnings > 0) {
-                    winnings += ppWinnings + player.getPairPlusBet(); // Return bet + winnings
-                    netEarnings += ppWinnings; // Net profit from PP
-                    Server.this.logMessage("Client " + count + " won pair plus: $" + ppWinnings + " (total payout: $" + (ppWinnings + player.getPairPlusBet()) + ")");
-                } else {
-                    netEarnings -= player.getPairPlusBet(); // Lost PP bet
-                    Server.this.logMessage("Client " + count + " lost pair plus bet: $" + player.getPairPlusBet());
+                    Server.this.logMessage("Streams not open for client {}", count);
+                    return;
                 }
-            }
-            
-            // Check if dealer qualifies
-            boolean dealerQualifies = ThreeCardLogic.dealerQualifies(dealerHand);
-            
-            if (!dealerQualifies) {
-                // Dealer doesn't qualify
-                // Return both play wager and ante wager (pushed)
-                winnings += player.getAnteBet() + player.getPlayBet();
-                // netEarnings stays 0 for ante/play (push)
-                Server.this.logMessage("Client " + count + " dealer does not qualify. Ante ($" + player.getAnteBet() + ") and play ($" + player.getPlayBet() + ") returned");
-                data.winner = 0; // Indicate dealer didn't qualify
-            } else {
-                // Compare hands
-                int result = ThreeCardLogic.compareHands(dealerHand, playerHand);
-                data.winner = result;
                 
-                if (result == 1) { // Player wins
-                    // Return original bets + winnings (1 to 1)
-                    int totalPayout = (player.getAnteBet() + player.getPlayBet()) * 2;
-                    winnings += totalPayout;
-                    netEarnings += player.getAnteBet() + player.getPlayBet(); // Net profit
-                    Server.this.logMessage("Client " + count + " player wins! Payout: $" + totalPayout);
-                } else if (result == 2) { // Dealer wins
-                    // Ante and play already deducted, no refund
-                    netEarnings -= (player.getAnteBet() + player.getPlayBet()); // Lost both
-                    Server.this.logMessage("Client " + count + " dealer wins. Client " + count + " lost ante ($" + player.getAnteBet() + ") and play ($" + player.getPlayBet() + ")");
-                } else { // Tie
-                    // Return both bets
-                    winnings += player.getAnteBet() + player.getPlayBet();
-                    // netEarnings stays 0 (push)
-                    Server.this.logMessage("Client " + count + " has tie game. Ante and play returned");
+                while (true) {
+                    try {
+                        PokerInfo data = channel.read();
+                        session.process(data, this::send);
+                        
+                        send(data);
+                        
+                    } catch (Exception e) {
+                        Server.this.logMessage("Client {} disconnected", count);
+                        break;
+                    }
                 }
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+                session.close();
+                session.release();
+                Server.this.removeClient(session);
             }
-            
-            player.setTotalWinnings(player.getTotalWinnings() + winnings);
-            data.winningsThisRound = netEarnings; // Use net earnings for display
-            data.cash = player.getTotalWinnings();
-            
-            Server.this.logMessage("Client " + count + " total cash: $" + data.cash);
         }
         
-        private void handleFold(PokerInfo data) {
-            // Ante and Pair Plus already deducted during deal
-            // No refunds when folding
-            data.cash = player.getTotalWinnings();
-            data.winningsThisRound = 0; // No additional change
-            
-            Server.this.logMessage("Client " + count + " folded. Client " + count + " lost ante ($" + player.getAnteBet() + 
-                                 ") and pair plus ($" + player.getPairPlusBet() + "). Total cash: $" + data.cash);
-        }
-        
-        private void handleFreshStart(PokerInfo data) {
-            // Reset player and dealer state
-            player = new Player();
-            dealer = new Dealer();
-            
-            // Send fresh welcome message with starting cash
-            data.buttonPressed = 0;
-            data.cash = 200;
-            data.ante = 0;
-            data.pairPlus = 0;
-            data.play = 0;
-            data.winningsThisRound = 0;
-            
-            Server.this.logMessage("Client " + count + " started fresh game with $200");
+        // Queues a message, waiting while the client is behind on reading
+        private void send(PokerInfo message) throws IOException {
+            try {
+                if (!writer.put(message)) {
+                    Server.this.logMessage("Client {} stopped reading, dropping connection", count);
+                    throw new IOException("Client " + count + " stopped reading");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
         }
     }
 }
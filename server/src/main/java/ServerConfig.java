@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.util.Properties;
+
+// Tuning settings the server reads once at startup
+public class ServerConfig {
+    
+    enum Engine {
+        THREADED, // one blocking platform thread per client
+        VIRTUAL,  // one blocking virtual thread per client
+        NIO       // a few selector event loops shared by all clients
+    }
+    
+    private static final boolean REUSE_PORT_SUPPORTED = reusePortSupported();
+    
+    Engine engine = Engine.THREADED;
+    int nioLoops = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    int acceptors = 1; // threads accepting connections, each with its own listener where SO_REUSEPORT works
+    int acceptBacklog = 1024; // connections the kernel queues for each listener
+    ShuffleRandom.Mode shuffleMode = ShuffleRandom.Mode.SPLITTABLE;
+    long shuffleSeed = 0;
+    int deckPoolSize = 64; // pre-shuffled decks kept ready, 0 disables the pool
+    int shoeDecks = 0; // decks per shoe, 0 deals a fresh deck every round
+    double shoePenetration = 0.75; // share of the shoe dealt before the cut card
+    int writeHighWatermark = WriteQueue.DEFAULT_HIGH_WATERMARK; // queued bytes that make a client unwritable
+    int writeLowWatermark = WriteQueue.DEFAULT_LOW_WATERMARK; // queued bytes at which it is writable again
+    long writeStallMillis = WriteQueue.DEFAULT_STALL_MILLIS; // how long it may stay unwritable before being dropped
+    long idleTimeoutMillis = 60_000; // how long a client may send nothing, heartbeats included, 0 never drops
+    long reaperTickMillis = 500; // how often the idle reaper checks, the accuracy of the idle timeout
+    int logBufferSize = LogPipeline.DEFAULT_CAPACITY; // log events queued before new ones are dropped
+    String logFile = null; // file the log is appended to, none by default
+    String journalDir = null; // directory for the hand history journal, none by default
+    int journalSegmentRecords = HandJournal.DEFAULT_SEGMENT_RECORDS; // rounds per journal file, fixed for a journal
+    long journalFlushMillis = HandJournal.DEFAULT_FLUSH_MILLIS; // how often journal writes are forced to disk
+    int recoveryThreads = Runtime.getRuntime().availableProcessors(); // journal segments read at once when recovering
+    String walletDir = null; // directory for players' lasting wallets, none keeps cash per connection
+    
+    // Reads settings from -Dpoker.* system properties, keeping defaults for missing ones
+    public static ServerConfig fromSystemProperties() {
+        return fromProperties(System.getProperties());
+    }
+    
+    // Reads settings from poker.* keys, such as a config file for the headless server
+    public static ServerConfig fromProperties(Properties properties) {
+        ServerConfig config = new ServerConfig();
+        
+        String engine = properties.getProperty("poker.engine");
+        if (engine != null) {
+            config.engine = Engine.valueOf(engine.trim().toUpperCase());
+        }
+        config.nioLoops = intValue(properties, "poker.nioLoops", config.nioLoops);
+        config.acceptors = intValue(properties, "poker.acceptors", config.acceptors);
+        config.acceptBacklog = intValue(properties, "poker.backlog", config.acceptBacklog);
+        
+        String mode = properties.getProperty("poker.shuffle");
+        if (mode != null) {
+            config.shuffleMode = ShuffleRandom.Mode.valueOf(mode.trim().toUpperCase());
+        }
+        config.shuffleSeed = longValue(properties, "poker.seed", config.shuffleSeed);
+        config.deckPoolSize = intValue(properties, "poker.deckPool", config.deckPoolSize);
+        config.shoeDecks = intValue(properties, "poker.shoeDecks", config.shoeDecks);
+        
+        String penetration = properties.getProperty("poker.shoePenetration");
+        if (penetration != null) {
+            config.shoePenetration = Double.parseDouble(penetration.trim());
+        }
+        config.writeHighWatermark = intValue(properties, "poker.writeHigh", config.writeHighWatermark);
+        config.writeLowWatermark = intValue(properties, "poker.writeLow", config.writeLowWatermark);
+        config.writeStallMillis = longValue(properties, "poker.writeStall", config.writeStallMillis);
+        config.idleTimeoutMillis = longValue(properties, "poker.idleTimeout", config.idleTimeoutMillis);
+        config.reaperTickMillis = longValue(properties, "poker.reaperTick", config.reaperTickMillis);
+        config.logBufferSize = intValue(properties, "poker.logBuffer", config.logBufferSize);
+        config.logFile = properties.getProperty("poker.logFile", config.logFile);
+        config.journalDir = properties.getProperty("poker.journal", config.journalDir);
+        config.journalSegmentRecords = intValue(properties, "poker.journalSegment", config.journalSegmentRecords);
+        config.journalFlushMillis = longValue(properties, "poker.journalFlush", config.journalFlushMillis);
+        config.recoveryThreads = intValue(properties, "poker.recoveryThreads", config.recoveryThreads);
+        config.walletDir = properties.getProperty("poker.wallets", config.walletDir);
+        
+        return config;
+    }
+    
+    int acceptorCount() {
+        return Math.max(1, acceptors);
+    }
+    
+    // Whether each acceptor binds its own listener. With SO_REUSEPORT the kernel
+    // spreads incoming connections over them, otherwise acceptors share one.
+    boolean reusePort() {
+        return acceptorCount() > 1 && REUSE_PORT_SUPPORTED;
+    }
+    
+    private static boolean reusePortSupported() {
+        try (ServerSocket socket = new ServerSocket()) {
+            return socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? (int) number(key, value, Integer.MIN_VALUE, Integer.MAX_VALUE) : defaultValue;
+    }
+    
+    private static long longValue(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? number(key, value, Long.MIN_VALUE, Long.MAX_VALUE) : defaultValue;
+    }
+    
+    // Not NumberFormatException, so a bad setting is not reported as a bad port
+    private static long number(String key, String value, long min, long max) {
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number < min || number > max) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a valid number: " + value);
+        }
+    }
+}
@@ -1,13 +1,26 @@
-import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javafx.animation.AnimationTimer;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 
-public class ServerGameController {
+// Server screen, also the server's listener. Listener calls only queue their
+// lines; once per animation pulse the FX thread moves whatever is queued into
+// the log in one change and refreshes the client count, so a busy server
+// costs the UI one update per frame rather than one per line.
+public class ServerGameController implements ServerListener {
+    
+    static final int LOG_LINES = 500;
+    private static final DateTimeFormatter TIME =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
     
     @FXML
     private Text numClientsText;
@@ -24,13 +37,15 @@ public class ServerGameController {
     @FXML
     private VBox gameRoot;
     
-    private Server server;
-    private ObservableList<String> logMessages;
+    private volatile Server server;
+    private final LogLines logLines = new LogLines(LOG_LINES);
+    private final ConcurrentLinkedQueue<String> pendingLines = new ConcurrentLinkedQueue<>();
+    private final List<String> pulseLines = new ArrayList<>();
+    private int shownClients = -1;
     
     @FXML
     public void initialize() {
-        logMessages = FXCollections.observableArrayList();
-        listItems.setItems(logMessages);
+        listItems.setItems(logLines);
         serverOffButton.setDisable(false);
         serverOnButton.setDisable(true);
         
@@ -41,39 +56,55 @@ public class ServerGameController {
                 listItems.getSelectionModel().clearSelection();
             }
         });
+        
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                showPending();
+            }
+        }.start();
     }
     
     public void setServer(Server server) {
         this.server = server;
-        updateClientCount(0);
     }
     
-    public void updateClientCount(int count) {
-        Platform.runLater(() -> {
-            synchronized (this) {
-                numClientsText.setText(String.valueOf(count));
-            }
-        });
+    // Applies the lines queued since the last pulse and the current client count
+    private void showPending() {
+        String line;
+        while ((line = pendingLines.poll()) != null) {
+            pulseLines.add(line);
+        }
+        if (!pulseLines.isEmpty()) {
+            logLines.addNewest(pulseLines);
+            pulseLines.clear();
+        }
+        
+        // Count events may arrive out of order, the server has the current count
+        Server current = server;
+        int clients = current != null ? current.getClientCount() : 0;
+        if (clients != shownClients) {
+            numClientsText.setText(String.valueOf(clients));
+            shownClients = clients;
+        }
+    }
+    
+    @Override
+    public void logMessage(String message) {
+        addLogMessage(message);
+    }
+    
+    // Formatting happens here on the log thread, the FX thread only inserts
+    @Override
+    public void logMessages(List<LogEvent> events) {
+        for (LogEvent event : events) {
+            pendingLines.add("[" + TIME.format(Instant.ofEpochMilli(event.getTimeMillis())) + "] " + event.message());
+        }
     }
     
+    // Safe from any thread, shown on the next pulse
     public void addLogMessage(Object message) {
-        Platform.runLater(() -> {
-            synchronized (this) {
-                String timeStamp = java.time.LocalTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
-                logMessages.add(0, "[" + timeStamp + "] " + message.toString());
-                
-                // Keep log to reasonable size
-                if (logMessages.size() > 500) {
-                    logMessages.remove(logMessages.size() - 1);
-                }
-                
-                // Update client count
-                if (server != null) {
-                    numClientsText.setText(String.valueOf(server.getClientCount()));
-                }
-            }
-        });
+        pendingLines.add("[" + TIME.format(Instant.now()) + "] " + message);
     }
     
     @FXML
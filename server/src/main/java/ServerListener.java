@@ -0,0 +1,18 @@
+import java.util.List;
+
+// Receives what a Server reports. Log lines come in batches from the log
+// thread, count changes from the server threads, so a listener that updates a
+// UI hands the work over to that UI's own thread.
+public interface ServerListener {
+    
+    void logMessage(String message);
+    
+    default void logMessages(List<LogEvent> events) {
+        for (LogEvent event : events) {
+            logMessage(event.message());
+        }
+    }
+    
+    default void clientCountChanged(int clients) {
+    }
+}
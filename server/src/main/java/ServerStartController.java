@@ -60,14 +60,9 @@ public class ServerStartController {
             
             ServerGameController gameController = loader.getController();
             
-            Server serverConnection = new Server(data -> {
-                Platform.runLater(() -> {
-                    gameController.addLogMessage(data);
-                });
-            }, portText);
-            
+            Server serverConnection = new Server(ServerConfig.fromSystemProperties(), port);
+            serverConnection.addListener(gameController);
             gameController.setServer(serverConnection);
-            JavaFXTemplate.setGameController(gameController);
             
             Scene scene = new Scene(root, 1000, 700);
             Stage stage = (Stage) startButton.getScene().getWindow();
@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Connected sessions keyed by session ID. Acceptors and session threads add
+// and remove in O(1) without a shared lock, the count is a LongAdder so reading
+// it on every log line does not contend with connects, and anything that walks
+// the sessions works on a snapshot.
+public class SessionRegistry {
+    private final ConcurrentHashMap<Integer, GameSession> sessions = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+    
+    void add(GameSession session) {
+        if (sessions.put(session.count, session) == null) {
+            size.increment();
+        }
+    }
+    
+    // Returns false if the session is not registered, for example because
+    // shutdown already removed it
+    boolean remove(GameSession session) {
+        if (sessions.remove(session.count, session)) {
+            size.decrement();
+            return true;
+        }
+        return false;
+    }
+    
+    GameSession get(int id) {
+        return sessions.get(id);
+    }
+    
+    int size() {
+        return (int) size.sum();
+    }
+    
+    // Sessions registered at about the time of the call
+    List<GameSession> snapshot() {
+        return new ArrayList<>(sessions.values());
+    }
+    
+    // Removes every session and returns the ones this call removed
+    List<GameSession> removeAll() {
+        List<GameSession> removed = new ArrayList<>();
+        for (GameSession session : snapshot()) {
+            if (remove(session)) {
+                removed.add(session);
+            }
+        }
+        return removed;
+    }
+}
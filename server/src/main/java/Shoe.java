@@ -0,0 +1,104 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Multi-deck shoe of card codes (see PackedCards) dealt in order across many
+// rounds. Once play passes the cut card the next round starts from a fresh
+// shoe. The replacement is shuffled ahead of time on the shuffler executor,
+// so the round that reaches the cut card only swaps arrays.
+public class Shoe {
+    private final ShuffleRandom random;
+    private final Executor shuffler;
+    private final int cutCard;
+    private int[] cards;
+    private int dealt;
+    private CompletableFuture<int[]> nextShoe;
+    private int[] spare;
+    
+    // penetration is the share of the shoe dealt before the cut card, e.g. 0.75
+    public Shoe(int decks, double penetration, ShuffleRandom random, Executor shuffler) {
+        if (decks < 1) {
+            throw new IllegalArgumentException("Shoe needs at least one deck");
+        }
+        if (penetration <= 0 || penetration > 1) {
+            throw new IllegalArgumentException("Penetration must be above 0 and at most 1");
+        }
+        
+        this.random = random;
+        this.shuffler = shuffler;
+        this.cards = newShoe(decks);
+        this.spare = newShoe(decks);
+        this.cutCard = Math.min((int) (cards.length * penetration), cards.length - 6);
+        
+        shuffle(cards);
+        prepareNext();
+    }
+    
+    // Starts a round, switching to the prepared shoe once the cut card is out
+    public void newRound() {
+        if (dealt >= cutCard) {
+            reshuffle();
+        }
+    }
+    
+    public int deal() {
+        if (dealt == cards.length) {
+            reshuffle();
+        }
+        return cards[dealt++];
+    }
+    
+    // Deals three cards as a packed hand
+    public int dealHand() {
+        int c0 = deal();
+        int c1 = deal();
+        int c2 = deal();
+        return PackedCards.hand(c0, c1, c2);
+    }
+    
+    public int remaining() {
+        return cards.length - dealt;
+    }
+    
+    public boolean isPastCutCard() {
+        return dealt >= cutCard;
+    }
+    
+    public int size() {
+        return cards.length;
+    }
+    
+    private void reshuffle() {
+        // Normally done long ago, otherwise wait for the shuffler to finish it
+        int[] fresh = nextShoe.join();
+        spare = cards;
+        cards = fresh;
+        dealt = 0;
+        prepareNext();
+    }
+    
+    private void prepareNext() {
+        int[] next = spare;
+        spare = null;
+        nextShoe = CompletableFuture.supplyAsync(() -> {
+            shuffle(next);
+            return next;
+        }, shuffler);
+    }
+    
+    private void shuffle(int[] shoe) {
+        for (int i = shoe.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = shoe[i];
+            shoe[i] = shoe[j];
+            shoe[j] = card;
+        }
+    }
+    
+    private static int[] newShoe(int decks) {
+        int[] shoe = new int[decks * PackedCards.CARDS_IN_DECK];
+        for (int i = 0; i < shoe.length; i++) {
+            shoe[i] = i % PackedCards.CARDS_IN_DECK;
+        }
+        return shoe;
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+// Random source a deck shuffles with. Each session gets its own instance
+// from a ShuffleRandomFactory so sessions never contend on a shared seed.
+public interface ShuffleRandom {
+    
+    enum Mode {
+        SPLITTABLE,   // independent SplittableRandom per session
+        THREAD_LOCAL, // ThreadLocalRandom of whichever thread shuffles
+        SEEDED,       // SplittableRandom split from a fixed seed, for replays
+        SECURE        // SecureRandom from a shared pool, for regulated tables
+    }
+    
+    // Returns a value from 0 (inclusive) to bound (exclusive)
+    int nextInt(int bound);
+    
+    static ShuffleRandom threadLocal() {
+        return bound -> ThreadLocalRandom.current().nextInt(bound);
+    }
+}
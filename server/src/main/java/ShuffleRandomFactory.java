@@ -0,0 +1,56 @@
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out one ShuffleRandom per session for the configured mode. Every
+// acceptor thread calls next, so it takes no lock: sessions are numbered by an
+// atomic counter and each one's generator is seeded from its number.
+public class ShuffleRandomFactory {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    
+    private final ShuffleRandom.Mode mode;
+    private final long seed;
+    private final AtomicLong sessions = new AtomicLong();
+    private final SecureRandom[] securePool;
+    
+    public ShuffleRandomFactory(ShuffleRandom.Mode mode, long seed) {
+        this.mode = mode;
+        this.seed = mode == ShuffleRandom.Mode.SEEDED ? seed : new SecureRandom().nextLong();
+        
+        if (mode == ShuffleRandom.Mode.SECURE) {
+            securePool = new SecureRandom[Runtime.getRuntime().availableProcessors()];
+            for (int i = 0; i < securePool.length; i++) {
+                securePool[i] = new SecureRandom();
+            }
+        } else {
+            securePool = null;
+        }
+    }
+    
+    public ShuffleRandom.Mode getMode() {
+        return mode;
+    }
+    
+    // Creates the random source for a new session. In SEEDED mode sessions
+    // created in the same order get the same sequences.
+    public ShuffleRandom next() {
+        switch (mode) {
+            case THREAD_LOCAL:
+                return ShuffleRandom.threadLocal();
+            case SECURE:
+                SecureRandom secure = securePool[(int) Long.remainderUnsigned(sessions.getAndIncrement(), securePool.length)];
+                return secure::nextInt;
+            default:
+                SplittableRandom session = new SplittableRandom(mix(seed + sessions.getAndIncrement() * GOLDEN_GAMMA));
+                return session::nextInt;
+        }
+    }
+    
+    // SplitMix64's finalizer, so neighbouring session numbers get unrelated
+    // seeds rather than one generator's sequence shifted along
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
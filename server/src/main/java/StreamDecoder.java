@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Splits a Java serialization stream arriving in arbitrary chunks into
+// objects without blocking. Senders write Externalizable messages unshared
+// and only reset the stream now and then, so one ObjectInputStream is kept
+// for the whole connection. Before each read the bytes of the next object
+// are scanned, so that stream only ever sees complete objects.
+public class StreamDecoder {
+    private static final byte[] STREAM_HEADER = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+    private static final int INCOMPLETE = -1;
+    
+    private final int maxMessageBytes;
+    private byte[] buffer = new byte[1024];
+    private int length;
+    private int readPos;
+    private int readLimit;
+    private ObjectInputStream objectIn;
+    
+    public StreamDecoder(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+    
+    // Adds bytes read from the connection
+    public void append(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        if (length + n > maxMessageBytes) {
+            throw new StreamCorruptedException("Message larger than " + maxMessageBytes + " bytes");
+        }
+        if (length + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + n));
+        }
+        src.get(buffer, length, n);
+        length += n;
+    }
+    
+    // Returns the next complete object, or null until more bytes arrive
+    public Object poll() throws IOException, ClassNotFoundException {
+        if (objectIn == null) {
+            if (length < STREAM_HEADER.length) {
+                return null;
+            }
+            for (int i = 0; i < STREAM_HEADER.length; i++) {
+                if (buffer[i] != STREAM_HEADER[i]) {
+                    throw new StreamCorruptedException("Not a serialization stream");
+                }
+            }
+            readLimit = STREAM_HEADER.length;
+            objectIn = new ObjectInputStream(new BufferedBytes());
+            consume(readPos);
+        }
+    
+        int end = objectEnd(0);
+        if (end == INCOMPLETE) {
+            return null;
+        }
+    
+        readLimit = end;
+        Object message = objectIn.readUnshared();
+        if (readPos != end) {
+            throw new StreamCorruptedException("Object did not end where expected");
+        }
+        consume(end);
+        return message;
+    }
+    
+    private void consume(int n) {
+        System.arraycopy(buffer, n, buffer, 0, length - n);
+        length -= n;
+        readPos = 0;
+    }
+    
+    // Returns where the top level object starting at pos ends, or INCOMPLETE.
+    // Only the subset of the grammar that Externalizable objects writing
+    // primitives produce is accepted; anything else is rejected.
+    private int objectEnd(int pos) throws StreamCorruptedException {
+        while (pos < length && buffer[pos] == ObjectStreamConstants.TC_RESET) {
+            pos++;
+        }
+        if (pos >= length) {
+            return INCOMPLETE;
+        }
+    
+        switch (buffer[pos]) {
+            case ObjectStreamConstants.TC_NULL:
+                return pos + 1;
+            case ObjectStreamConstants.TC_OBJECT:
+                pos = classDescEnd(pos + 1);
+                return pos == INCOMPLETE ? INCOMPLETE : blockDataEnd(pos);
+            default:
+                throw new StreamCorruptedException("Unsupported type code " + buffer[pos]);
+        }
+    }
+    
+    private int classDescEnd(int pos) throws StreamCorruptedException {
+        if (pos >= length) {
+            return INCOMPLETE;
+        }
+    
+        switch (buffer[pos]) {
+            case ObjectStreamConstants.TC_NULL:
+                return pos + 1;
+            case ObjectStreamConstants.TC_REFERENCE:
+                return pos + 5 <= length ? pos + 5 : INCOMPLETE;
+            case ObjectStreamConstants.TC_CLASSDESC:
+                break;
+            default:
+                throw new StreamCorruptedException("Unsupported class descriptor " + buffer[pos]);
+        }
+    
+        // Class name, serialVersionUID, flags, field count
+        if (pos + 3 > length) {
+            return INCOMPLETE;
+        }
+        pos += 3 + unsignedShort(pos + 1);
+        if (pos + 11 > length) {
+            return INCOMPLETE;
+        }
+        byte flags = buffer[pos + 8];
+        if ((flags & ObjectStreamConstants.SC_EXTERNALIZABLE) == 0
+                || (flags & ObjectStreamConstants.SC_BLOCK_DATA) == 0
+                || unsignedShort(pos + 9) != 0) {
+            throw new StreamCorruptedException("Only Externalizable classes are supported");
+        }
+    
+        pos = blockDataEnd(pos + 11); // class annotation
+        return pos == INCOMPLETE ? INCOMPLETE : classDescEnd(pos);
+    }
+    
+    // Skips block data records up to and including the end block marker
+    private int blockDataEnd(int pos) throws StreamCorruptedException {
+        while (pos < length) {
+            switch (buffer[pos]) {
+                case ObjectStreamConstants.TC_ENDBLOCKDATA:
+                    return pos + 1;
+                case ObjectStreamConstants.TC_BLOCKDATA:
+                    if (pos + 2 > length) {
+                        return INCOMPLETE;
+                    }
+                    pos += 2 + (buffer[pos + 1] & 0xFF);
+                    break;
+                case ObjectStreamConstants.TC_BLOCKDATALONG:
+                    if (pos + 5 > length) {
+                        return INCOMPLETE;
+                    }
+                    int size = ByteBuffer.wrap(buffer, pos + 1, 4).getInt();
+                    if (size < 0) {
+                        throw new StreamCorruptedException("Negative block length");
+                    }
+                    pos += 5 + size;
+                    break;
+                default:
+                    throw new StreamCorruptedException("Nested objects are not supported");
+            }
+        }
+        return INCOMPLETE;
+    }
+    
+    private int unsignedShort(int pos) {
+        return (buffer[pos] & 0xFF) << 8 | buffer[pos + 1] & 0xFF;
+    }
+    
+    // Serves buffered bytes up to readLimit to the object stream
+    private class BufferedBytes extends InputStream {
+        @Override
+        public int read() {
+            return readPos < readLimit ? buffer[readPos++] & 0xFF : -1;
+        }
+    
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (readPos >= readLimit) {
+                return -1;
+            }
+            int n = Math.min(len, readLimit - readPos);
+            System.arraycopy(buffer, readPos, b, off, n);
+            readPos += n;
+            return n;
+        }
+    
+        @Override
+        public int available() {
+            return readLimit - readPos;
+        }
+    }
+}
@@ -1,7 +1,4 @@
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 public class ThreeCardLogic {
     
@@ -30,6 +27,41 @@ public class ThreeCardLogic {
         }
     }
     
+    // Number of distinct three card hands in a 52 card deck (52 choose 3)
+    static final int HAND_COUNT = 22100;
+    
+    // Table entries are hand ranks (see rank)
+    private static final int[] HAND_TABLE = new int[HAND_COUNT];
+    private static final int[] CHOOSE_2 = new int[52];
+    private static final int[] CHOOSE_3 = new int[52];
+    private static final Hands[] CATEGORIES = Hands.values();
+    private static final String[] HIGH_CARD_DESCRIPTIONS = new String[15];
+    
+    // Rank used for hands that are not three cards
+    private static final int INVALID_RANK = 0;
+    
+    static {
+        for (int n = 0; n < 52; n++) {
+            CHOOSE_2[n] = n * (n - 1) / 2;
+            CHOOSE_3[n] = n * (n - 1) * (n - 2) / 6;
+        }
+        
+        for (int value = 0; value <= 14; value++) {
+            HIGH_CARD_DESCRIPTIONS[value] = getCardName(value) + " High";
+        }
+        
+        // Table order follows the PackedCards card codes
+        for (int c = 2; c < 52; c++) {
+            for (int b = 1; b < c; b++) {
+                for (int a = 0; a < b; a++) {
+                    boolean flush = a / 13 == b / 13 && b / 13 == c / 13;
+                    HAND_TABLE[CHOOSE_3[c] + CHOOSE_2[b] + a] =
+                            classify(a % 13 + 2, b % 13 + 2, c % 13 + 2, flush);
+                }
+            }
+        }
+    }
+    
     // Returns the value of the highest card in the hand
     public static int highestCardVal(ArrayList<Card> hand) {
         int max = 0;
@@ -63,11 +95,15 @@ public class ThreeCardLogic {
     
     // Get detailed hand description including high card information
     public static String getHandDescription(ArrayList<Card> hand) {
-        Hands handType = evalHand(hand);
+        if (hand == null || hand.size() != 3) {
+            return getCardName(highestCardVal(hand)) + " High";
+        }
+        
+        int rank = rank(hand);
+        Hands handType = rankCategory(rank);
         
         if (handType == Hands.HIGH_CARD) {
-            int highCard = highestCardVal(hand);
-            return getCardName(highCard) + " High";
+            return HIGH_CARD_DESCRIPTIONS[rankHighCard(rank)];
         } else {
             return handType.getName();
         }
@@ -75,34 +111,47 @@ public class ThreeCardLogic {
     
     // Evaluates a three card poker hand and returns what type of hand it is
     public static Hands evalHand(ArrayList<Card> hand) {
-        if (hand == null || hand.size() != 3) {
-            return Hands.HIGH_CARD;
-        }
-        
-        boolean isFlush = isFlush(hand);
-        boolean isStraight = isStraight(hand);
-        boolean isThreeKind = isThreeOfAKind(hand);
-        boolean isPair = isPair(hand);
+        return rankCategory(rank(hand));
+    }
+    
+    // Evaluates a packed hand (see PackedCards)
+    public static Hands evalHand(int hand) {
+        return rankCategory(rank(hand));
+    }
+    
+    // Evaluates a hand mask (see PackedCards.mask)
+    public static Hands evalHand(long mask) {
+        return rankCategory(rank(mask));
+    }
+    
+    // Get detailed hand description for a packed hand
+    public static String getHandDescription(int hand) {
+        int rank = rank(hand);
+        Hands handType = rankCategory(rank);
         
-        if (isFlush && isStraight) {
-            return Hands.STRAIGHT_FLUSH;
-        } else if (isThreeKind) {
-            return Hands.THREE_KIND;
-        } else if (isStraight) {
-            return Hands.STRAIGHT;
-        } else if (isFlush) {
-            return Hands.FLUSH;
-        } else if (isPair) {
-            return Hands.PAIR;
+        if (handType == Hands.HIGH_CARD) {
+            return HIGH_CARD_DESCRIPTIONS[rankHighCard(rank)];
         } else {
-            return Hands.HIGH_CARD;
+            return handType.getName();
         }
     }
     
     // Evaluates Pair Plus winnings
     public static int evalPPWinnings(ArrayList<Card> hand, int bet) {
-        Hands handType = evalHand(hand);
-        
+        return ppWinnings(evalHand(hand), bet);
+    }
+    
+    // Evaluates Pair Plus winnings for a packed hand
+    public static int evalPPWinnings(int hand, int bet) {
+        return ppWinnings(evalHand(hand), bet);
+    }
+    
+    // Evaluates Pair Plus winnings for a hand mask
+    public static int evalPPWinnings(long mask, int bet) {
+        return ppWinnings(evalHand(mask), bet);
+    }
+    
+    private static int ppWinnings(Hands handType, int bet) {
         switch (handType) {
             case STRAIGHT_FLUSH:
                 return bet * 40;
@@ -121,127 +170,174 @@ public class ThreeCardLogic {
     
     // Checks if dealer qualifies Queen high or better
     public static boolean dealerQualifies(ArrayList<Card> dealer) {
-        Hands handType = evalHand(dealer);
+        if (dealer == null || dealer.size() != 3) {
+            return highestCardVal(dealer) >= 12;
+        }
+        
+        int rank = rank(dealer);
         
         // If dealer has a pair or better, they qualify
-        if (handType != Hands.HIGH_CARD) {
+        if (rankCategory(rank) != Hands.HIGH_CARD) {
             return true;
         }
         
         // Check if highest card is Queen or higher
-        int highCard = highestCardVal(dealer);
-        return highCard >= 12;
+        return rankHighCard(rank) >= 12;
+    }
+    
+    // Checks if a packed dealer hand qualifies Queen high or better
+    public static boolean dealerQualifies(int dealer) {
+        return rankQualifies(rank(dealer));
+    }
+    
+    // Checks if a dealer hand mask qualifies Queen high or better
+    public static boolean dealerQualifies(long dealer) {
+        return rankQualifies(rank(dealer));
+    }
+    
+    private static boolean rankQualifies(int rank) {
+        return rankCategory(rank) != Hands.HIGH_CARD || rankHighCard(rank) >= 12;
     }
     
     // Compares dealer and player hands
     // Returns: 2 if dealer wins, 1 if player wins, 0 if tie
     public static int compareHands(ArrayList<Card> dealer, ArrayList<Card> player) {
-        Hands dealerHand = evalHand(dealer);
-        Hands playerHand = evalHand(player);
-        
-        // Compare hand types first
-        if (dealerHand.getNum() < playerHand.getNum()) {
+        return compareRanks(rank(dealer), rank(player));
+    }
+    
+    // Compares packed dealer and player hands
+    public static int compareHands(int dealer, int player) {
+        return compareRanks(rank(dealer), rank(player));
+    }
+    
+    // Compares dealer and player hand masks
+    public static int compareHands(long dealer, long player) {
+        return compareRanks(rank(dealer), rank(player));
+    }
+    
+    // Compares two ranks from rank()
+    // Returns: 2 if dealer wins, 1 if player wins, 0 if tie
+    public static int compareRanks(int dealerRank, int playerRank) {
+        if (dealerRank > playerRank) {
             return 2; // Dealer wins
-        } else if (playerHand.getNum() < dealerHand.getNum()) {
+        } else if (playerRank > dealerRank) {
             return 1; // Player wins
         }
-        
-        // Same hand type, compare high cards
-        return compareHighCards(dealer, player, dealerHand);
+        return 0; // Tie
     }
     
-    // Helper method to check if hand is a flush
-    private static boolean isFlush(ArrayList<Card> hand) {
-        char suit = hand.get(0).getSuit();
-        return hand.get(1).getSuit() == suit && hand.get(2).getSuit() == suit;
+    // Returns the strength of a hand as a single int, higher is better.
+    // Bits 16-18 = hand category (5 for straight flush down to 0 for high card),
+    // bits 12-15 = pair/trips value, bits 8-11, 4-7, 0-3 = card values from
+    // highest to lowest. Any two hands compare with one int comparison.
+    // Cards that are not three distinct standard cards are ranked directly.
+    public static int rank(ArrayList<Card> hand) {
+        if (hand == null || hand.size() != 3) {
+            return INVALID_RANK;
+        }
+        
+        Card c0 = hand.get(0);
+        Card c1 = hand.get(1);
+        Card c2 = hand.get(2);
+        int a = c0.code();
+        int b = c1.code();
+        int c = c2.code();
+        
+        if (a < 0 || b < 0 || c < 0 || a == b || a == c || b == c) {
+            boolean flush = c0.getSuit() == c1.getSuit() && c1.getSuit() == c2.getSuit();
+            return classify(c0.getValue(), c1.getValue(), c2.getValue(), flush);
+        }
+        
+        return HAND_TABLE[tableIndex(a, b, c)];
     }
     
-    // Helper method to check if hand is a straight
-    private static boolean isStraight(ArrayList<Card> hand) {
-        ArrayList<Integer> values = new ArrayList<>();
-        for (Card card : hand) {
-            values.add(card.getValue());
+    // Rank of a packed hand (see PackedCards). Throws IllegalArgumentException
+    // for anything that is not three standard card codes, such as the -1
+    // PackedCards.pack returns for non standard cards.
+    public static int rank(int hand) {
+        int a = PackedCards.card(hand, 0);
+        int b = PackedCards.card(hand, 1);
+        int c = PackedCards.card(hand, 2);
+        if ((hand & ~0x3FFFF) != 0 || a >= PackedCards.CARDS_IN_DECK
+                || b >= PackedCards.CARDS_IN_DECK || c >= PackedCards.CARDS_IN_DECK) {
+            throw new IllegalArgumentException("Not a packed hand: " + hand);
         }
-        Collections.sort(values);
         
-        // Check for normal straight
-        if (values.get(2) - values.get(1) == 1 && values.get(1) - values.get(0) == 1) {
-            return true;
+        if (a == b || a == c || b == c) {
+            boolean flush = a / 13 == b / 13 && b / 13 == c / 13;
+            return classify(a % 13 + 2, b % 13 + 2, c % 13 + 2, flush);
         }
         
-        // Check for A-2-3 straight (special case)
-        if (values.get(0) == 2 && values.get(1) == 3 && values.get(2) == 14) {
-            return true;
+        return HAND_TABLE[tableIndex(a, b, c)];
+    }
+    
+    // Rank of a hand mask (see PackedCards.mask). Throws IllegalArgumentException
+    // unless exactly three of the 52 card bits are set.
+    public static int rank(long mask) {
+        if (Long.bitCount(mask) != 3 || mask >>> PackedCards.CARDS_IN_DECK != 0) {
+            throw new IllegalArgumentException("Not a three card mask: " + Long.toHexString(mask));
         }
-        
-        return false;
+        // Bits come out lowest first, already in table order
+        int a = Long.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        int b = Long.numberOfTrailingZeros(mask);
+        mask &= mask - 1;
+        int c = Long.numberOfTrailingZeros(mask);
+        return HAND_TABLE[CHOOSE_3[c] + CHOOSE_2[b] + a];
     }
     
-    // Helper method to check if hand is three of a kind
-    private static boolean isThreeOfAKind(ArrayList<Card> hand) {
-        int val = hand.get(0).getValue();
-        return hand.get(1).getValue() == val && hand.get(2).getValue() == val;
+    // Position of three distinct card codes in the table
+    static int tableIndex(int a, int b, int c) {
+        int t;
+        if (a > b) { t = a; a = b; b = t; }
+        if (b > c) { t = b; b = c; c = t; }
+        if (a > b) { t = a; a = b; b = t; }
+        return CHOOSE_3[c] + CHOOSE_2[b] + a;
     }
     
-    // Helper method to check if hand is a pair
-    private static boolean isPair(ArrayList<Card> hand) {
-        return hand.get(0).getValue() == hand.get(1).getValue() ||
-               hand.get(0).getValue() == hand.get(2).getValue() ||
-               hand.get(1).getValue() == hand.get(2).getValue();
+    // Hand category of a rank from rank()
+    public static Hands rankCategory(int rank) {
+        return CATEGORIES[CATEGORIES.length - 1 - (rank >>> 16)];
     }
     
-    // Compare high cards when hands are of same type
-    private static int compareHighCards(ArrayList<Card> dealer, ArrayList<Card> player, Hands handType) {
-        ArrayList<Integer> dealerVals = new ArrayList<>();
-        ArrayList<Integer> playerVals = new ArrayList<>();
-        
-        for (Card card : dealer) {
-            dealerVals.add(card.getValue());
-        }
-        for (Card card : player) {
-            playerVals.add(card.getValue());
-        }
-        
-        Collections.sort(dealerVals, Collections.reverseOrder());
-        Collections.sort(playerVals, Collections.reverseOrder());
-        
-        // For pairs and three of a kind, compare the paired/triple value first
-        if (handType == Hands.PAIR || handType == Hands.THREE_KIND) {
-            int dealerPairVal = getPairValue(dealer);
-            int playerPairVal = getPairValue(player);
-            
-            if (dealerPairVal > playerPairVal) {
-                return 2;
-            } else if (playerPairVal > dealerPairVal) {
-                return 1;
-            }
-        }
-        
-        // Compare high cards in order
-        for (int i = 0; i < 3; i++) {
-            if (dealerVals.get(i) > playerVals.get(i)) {
-                return 2; // Dealer wins
-            } else if (playerVals.get(i) > dealerVals.get(i)) {
-                return 1; // Player wins
-            }
-        }
-        
-        return 0; // Tie
+    // Highest card value of a rank from rank()
+    public static int rankHighCard(int rank) {
+        return (rank >>> 8) & 0xF;
     }
     
-    // Get the value of the pair or triple
-    private static int getPairValue(ArrayList<Card> hand) {
-        Map<Integer, Integer> counts = new HashMap<>();
-        for (Card card : hand) {
-            counts.put(card.getValue(), counts.getOrDefault(card.getValue(), 0) + 1);
-        }
+    // Builds the rank for three card values
+    private static int classify(int v0, int v1, int v2, boolean isFlush) {
+        // Sort values from highest to lowest
+        int t;
+        if (v0 < v1) { t = v0; v0 = v1; v1 = t; }
+        if (v1 < v2) { t = v1; v1 = v2; v2 = t; }
+        if (v0 < v1) { t = v0; v0 = v1; v1 = t; }
         
-        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
-            if (entry.getValue() >= 2) {
-                return entry.getKey();
-            }
+        // A-2-3 counts as a straight (special case)
+        boolean isStraight = (v0 - v1 == 1 && v1 - v2 == 1) || (v0 == 14 && v1 == 3 && v2 == 2);
+        boolean isThreeKind = v0 == v2;
+        boolean isPair = v0 == v1 || v1 == v2;
+        
+        Hands handType;
+        int pairValue = 0;
+        if (isFlush && isStraight) {
+            handType = Hands.STRAIGHT_FLUSH;
+        } else if (isThreeKind) {
+            handType = Hands.THREE_KIND;
+            pairValue = v0;
+        } else if (isStraight) {
+            handType = Hands.STRAIGHT;
+        } else if (isFlush) {
+            handType = Hands.FLUSH;
+        } else if (isPair) {
+            handType = Hands.PAIR;
+            pairValue = v1; // middle card always belongs to the pair
+        } else {
+            handType = Hands.HIGH_CARD;
         }
         
-        return 0;
+        int category = CATEGORIES.length - 1 - handType.ordinal();
+        return category << 16 | (pairValue & 0xF) << 12
+                | (v0 & 0xF) << 8 | (v1 & 0xF) << 4 | (v2 & 0xF);
     }
 }
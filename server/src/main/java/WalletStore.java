@@ -0,0 +1,333 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+// Players' cash by player ID, kept across disconnects and server restarts.
+// Balances live in memory and change there without waiting for the disk. A
+// changed wallet is queued once however often it changes, and a writer thread
+// appends the latest balance of every queued wallet to a log file and forces
+// it with one sync, so all changes made during a sync share the next one.
+// Each record is the player ID, the balance and a checksum, the last one for
+// a player wins and a torn record at the end is ignored. Opening the store
+// rewrites the log with one record per player.
+public class WalletStore implements Closeable {
+    static final int RECORD_SIZE = 16;
+    static final int COMPACT_MIN_RECORDS = 1 << 16; // log records before the writer considers compacting
+    private static final String LOG = "wallets.log";
+    private static final String COMPACTING = "wallets.tmp";
+    
+    private final Path dir;
+    private final Map<Long, Wallet> wallets = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Wallet> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long durable; // changes before this count are on disk
+    private final AtomicLong commits = new AtomicLong();
+    private FileChannel channel; // writer thread only once open
+    private long records; // records in the log, writer thread only
+    private ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * 256);
+    
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    
+    private static final class Wallet {
+        final long playerId;
+        final AtomicInteger balance;
+        final AtomicBoolean queued = new AtomicBoolean();
+        
+        Wallet(long playerId, int balance) {
+            this.playerId = playerId;
+            this.balance = new AtomicInteger(balance);
+        }
+    }
+    
+    // Opens the store in dir, loading the balances saved there
+    WalletStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        load(dir).forEach((playerId, balance) -> wallets.put(playerId, new Wallet(playerId, balance)));
+        compact();
+        
+        writer = new Thread(this::run, "wallet-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    // The player's balance, starting a wallet with startingCash for a new player
+    int open(long playerId, int startingCash) {
+        Wallet wallet = wallets.get(playerId);
+        if (wallet != null) {
+            return wallet.balance.get();
+        }
+        Wallet created = new Wallet(playerId, startingCash);
+        wallet = wallets.putIfAbsent(playerId, created);
+        if (wallet != null) {
+            return wallet.balance.get();
+        }
+        changed(created);
+        return startingCash;
+    }
+    
+    // The player's balance, or -1 for a player without a wallet
+    int balance(long playerId) {
+        Wallet wallet = wallets.get(playerId);
+        return wallet != null ? wallet.balance.get() : -1;
+    }
+    
+    // Takes amount if the balance covers it and returns what is left, or -1
+    // without changing anything if it does not. The check and the debit are
+    // one step, so sessions sharing a wallet cannot both spend the same cash.
+    int debit(long playerId, int amount) {
+        Wallet wallet = wallet(playerId);
+        int balance;
+        do {
+            balance = wallet.balance.get();
+            if (balance < amount) {
+                return -1;
+            }
+        } while (!wallet.balance.compareAndSet(balance, balance - amount));
+        if (amount != 0) {
+            changed(wallet);
+        }
+        return balance - amount;
+    }
+    
+    // Tops the balance up to amount if it is below minimum, checked and set in
+    // one step like debit. Returns what was added, 0 if the balance was left alone.
+    int refill(long playerId, int minimum, int amount) {
+        Wallet wallet = wallet(playerId);
+        int balance;
+        do {
+            balance = wallet.balance.get();
+            if (balance >= minimum || balance >= amount) {
+                return 0;
+            }
+        } while (!wallet.balance.compareAndSet(balance, amount));
+        changed(wallet);
+        return amount - balance;
+    }
+    
+    // Credits amount, returns the new balance. Debits go through debit.
+    int add(long playerId, int amount) {
+        Wallet wallet = wallet(playerId);
+        if (amount == 0) {
+            return wallet.balance.get();
+        }
+        int balance = wallet.balance.addAndGet(amount);
+        changed(wallet);
+        return balance;
+    }
+    
+    // Sets the balance, starting a wallet for a player who has none
+    void set(long playerId, int balance) {
+        Wallet wallet = wallets.computeIfAbsent(playerId, id -> new Wallet(id, balance));
+        wallet.balance.set(balance);
+        changed(wallet);
+    }
+    
+    int size() {
+        return wallets.size();
+    }
+    
+    // Syncs to disk done by the writer, for seeing how well changes are grouped
+    long commits() {
+        return commits.get();
+    }
+    
+    // Waits until every change made before the call is on disk
+    void sync() {
+        long target = changes.get();
+        while (durable < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+    
+    // Writes what is still queued and closes the log
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Wallet wallet(long playerId) {
+        Wallet wallet = wallets.get(playerId);
+        if (wallet == null) {
+            throw new IllegalArgumentException("No wallet for player " + playerId);
+        }
+        return wallet;
+    }
+    
+    // Queues the wallet unless it already is. The change is counted after that,
+    // so a commit that includes the count also includes the balance.
+    private void changed(Wallet wallet) {
+        if (wallet.queued.compareAndSet(false, true)) {
+            changed.add(wallet);
+        }
+        changes.incrementAndGet();
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+    
+    private void run() {
+        while (true) {
+            long target = changes.get();
+            if (durable < target) {
+                try {
+                    commit();
+                    durable = target;
+                    commits.incrementAndGet();
+                    if (records >= COMPACT_MIN_RECORDS && records > 4L * wallets.size()) {
+                        compact();
+                    }
+                } catch (IOException e) {
+                    // The wallets were queued again, try once more shortly
+                    // unless closing, which must not hang on a broken disk
+                    e.printStackTrace();
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+            parked = true;
+            if (durable == changes.get() && running) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            parked = false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    // Appends the latest balance of every queued wallet, then one sync. A wallet
+    // leaves the queue before its balance is read, so a change made meanwhile
+    // queues it again rather than being missed.
+    private void commit() throws IOException {
+        List<Wallet> taken = new ArrayList<>();
+        batch.clear();
+        Wallet wallet;
+        while ((wallet = changed.poll()) != null) {
+            wallet.queued.set(false);
+            taken.add(wallet);
+            if (batch.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(batch.capacity() * 2);
+                batch.flip();
+                batch = larger.put(batch);
+            }
+            putRecord(batch, wallet.playerId, wallet.balance.get());
+        }
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            records += taken.size();
+        } catch (IOException e) {
+            for (Wallet retry : taken) {
+                if (retry.queued.compareAndSet(false, true)) {
+                    changed.add(retry);
+                }
+            }
+            throw e;
+        }
+    }
+    
+    // Replaces the log with one record per player. Only called while opening
+    // and by the writer thread.
+    private void compact() throws IOException {
+        Path compacting = dir.resolve(COMPACTING);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+        long written = 0;
+        try (FileChannel out = FileChannel.open(compacting, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Wallet wallet : wallets.values()) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    write(out, buffer);
+                }
+                putRecord(buffer, wallet.playerId, wallet.balance.get());
+                written++;
+            }
+            write(out, buffer);
+            out.force(true);
+        }
+        Files.move(compacting, dir.resolve(LOG), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(dir.resolve(LOG), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        records = written;
+    }
+    
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private static void putRecord(ByteBuffer out, long playerId, int balance) {
+        out.putLong(playerId);
+        out.putInt(balance);
+        out.putInt(checksum(playerId, balance));
+    }
+    
+    private static int checksum(long playerId, int balance) {
+        CRC32 crc = new CRC32();
+        ByteBuffer bytes = ByteBuffer.allocate(12).putLong(playerId).putInt(balance);
+        crc.update(bytes.array());
+        return (int) crc.getValue();
+    }
+    
+    // Balances saved in dir, the last record for each player winning. Reading
+    // stops at the first record that does not match its checksum.
+    static Map<Long, Integer> load(Path dir) throws IOException {
+        Map<Long, Integer> balances = new HashMap<>();
+        Path log = dir.resolve(LOG);
+        if (!Files.exists(log)) {
+            return balances;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(log));
+        while (in.remaining() >= RECORD_SIZE) {
+            long playerId = in.getLong();
+            int balance = in.getInt();
+            if (in.getInt() != checksum(playerId, balance)) {
+                break;
+            }
+            balances.put(playerId, balance);
+        }
+        return balances;
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Outbound messages for one PokerConnection. Callers encode and queue them,
+// a writer thread of the queue's own sends them, so a slow peer never blocks
+// the caller. Once more than the high watermark of bytes is queued the queue
+// is not writable until it drains to the low watermark, and a connection
+// that stays that way past the stall timeout is closed.
+// This file is identical in the client and server modules.
+public class WriteQueue {
+    static final int DEFAULT_HIGH_WATERMARK = 64 * 1024;
+    static final int DEFAULT_LOW_WATERMARK = 16 * 1024;
+    static final long DEFAULT_STALL_MILLIS = 10_000;
+    
+    private final PokerConnection connection;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final long stallNanos;
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private int queuedBytes;
+    private boolean writable = true;
+    private long unwritableSince;
+    private boolean closed;
+    
+    WriteQueue(PokerConnection connection, int highWatermark, int lowWatermark, long stallMillis) {
+        if (lowWatermark < 0 || highWatermark < lowWatermark) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low <= high: " + lowWatermark + ", " + highWatermark);
+        }
+        if (stallMillis <= 0) {
+            throw new IllegalArgumentException("Stall timeout must be positive: " + stallMillis);
+        }
+        this.connection = connection;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+    }
+    
+    // Starts the writer on a thread from factory
+    void start(ThreadFactory factory) {
+        factory.newThread(this::drain).start();
+    }
+    
+    // Queues a message without blocking. Returns false if the connection has been
+    // closed, including because it stayed unwritable past the stall timeout.
+    boolean offer(PokerInfo info) throws IOException {
+        lock.lock();
+        try {
+            if (!writable && System.nanoTime() - unwritableSince > stallNanos) {
+                close();
+            }
+            if (closed) {
+                return false;
+            }
+            enqueue(connection.encode(info));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Queues a message, first waiting while the queue is not writable. Returns
+    // false if the connection has been closed, including because it stayed
+    // unwritable past the stall timeout.
+    boolean put(PokerInfo info) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            long remaining = stallNanos - (writable ? 0 : System.nanoTime() - unwritableSince);
+            while (!writable && !closed) {
+                if (remaining <= 0) {
+                    close();
+                    break;
+                }
+                remaining = drained.awaitNanos(remaining);
+            }
+            if (closed) {
+                return false;
+            }
+            enqueue(connection.encode(info));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    boolean isWritable() {
+        lock.lock();
+        try {
+            return writable;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int queuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Drops whatever is still queued and closes the connection
+    void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            notEmpty.signalAll();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+    
+    private void enqueue(byte[] bytes) {
+        queue.add(bytes);
+        queuedBytes += bytes.length;
+        if (writable && queuedBytes > highWatermark) {
+            writable = false;
+            unwritableSince = System.nanoTime();
+        }
+        notEmpty.signal();
+    }
+    
+    // Writer loop: takes everything queued, writes it with one flush
+    private void drain() {
+        ArrayDeque<byte[]> batch = new ArrayDeque<>();
+        try {
+            while (true) {
+                lock.lock();
+                try {
+                    while (queue.isEmpty() && !closed) {
+                        notEmpty.await();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    batch.addAll(queue);
+                    queue.clear();
+                } finally {
+                    lock.unlock();
+                }
+                
+                int written = 0;
+                for (byte[] bytes : batch) {
+                    connection.writeEncoded(bytes);
+                    written += bytes.length;
+                }
+                connection.flush();
+                batch.clear();
+                
+                lock.lock();
+                try {
+                    queuedBytes -= written;
+                    if (!writable && queuedBytes <= lowWatermark) {
+                        writable = true;
+                        drained.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            close();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Writes timestamped lines to a stream or file, flushing once per batch
+public class WriterLogSink implements LogSink {
+    private static final DateTimeFormatter TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    
+    private final Writer out;
+    private final boolean closeWriter;
+    
+    WriterLogSink(Writer out, boolean closeWriter) {
+        this.out = out;
+        this.closeWriter = closeWriter;
+    }
+    
+    // Standard output, which stays open when the sink is closed
+    static WriterLogSink stdout(PrintStream stream) {
+        return new WriterLogSink(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)), false);
+    }
+    
+    // Appends to file, creating it if needed
+    static WriterLogSink file(Path file) throws IOException {
+        return new WriterLogSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), true);
+    }
+    
+    @Override
+    public void write(List<LogEvent> batch) throws IOException {
+        for (LogEvent event : batch) {
+            TIME.formatTo(Instant.ofEpochMilli(event.timeMillis), out);
+            out.write(' ');
+            out.write(event.message());
+            out.write(System.lineSeparator());
+        }
+        out.flush();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closeWriter) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
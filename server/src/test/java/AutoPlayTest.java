@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AutoPlayTest {
+
+    private int hand(char s0, int v0, char s1, int v1, char s2, int v2) {
+        return PackedCards.hand(PackedCards.code(s0, v0), PackedCards.code(s1, v1), PackedCards.code(s2, v2));
+    }
+
+    private GameSession session() {
+        return new GameSession(new Server(message -> { }, "0"), 1, () -> { }, new Dealer());
+    }
+
+    private PokerInfo request(int rounds, int strategy, boolean detail, int cash) {
+        PokerInfo data = new PokerInfo(10, 5, cash);
+        data.buttonPressed = 5;
+        data.requestId = 7;
+        data.rounds = rounds;
+        data.strategy = strategy;
+        data.detail = detail;
+        return data;
+    }
+
+    @Test
+    void queenSixFourStrategyFoldsWeakerHighCards() {
+        AutoPlay.Strategy strategy = AutoPlay.Strategy.QUEEN_SIX_FOUR;
+
+        assertTrue(strategy.plays(hand('C', 12, 'D', 6, 'H', 4)));
+        assertTrue(strategy.plays(hand('C', 12, 'D', 7, 'H', 2)));
+        assertTrue(strategy.plays(hand('C', 2, 'D', 2, 'H', 3)), "Any pair plays");
+        assertFalse(strategy.plays(hand('C', 12, 'D', 6, 'H', 3)));
+        assertFalse(strategy.plays(hand('C', 11, 'D', 10, 'H', 8)));
+        assertTrue(AutoPlay.Strategy.ALWAYS_PLAY.plays(hand('C', 7, 'D', 5, 'H', 2)));
+    }
+
+    @Test
+    void recordRoundTripsEveryPart() {
+        int player = hand('S', 14, 'S', 13, 'S', 12);
+        int dealer = hand('C', 2, 'D', 3, 'H', 9);
+        long record = AutoPlay.record(player, dealer, true, 1, -1050);
+
+        assertEquals(player, AutoPlay.playerHand(record));
+        assertEquals(dealer, AutoPlay.dealerHand(record));
+        assertTrue(AutoPlay.played(record));
+        assertEquals(1, AutoPlay.winner(record));
+        assertEquals(-1050, AutoPlay.net(record));
+    }
+
+    @Test
+    void detailChunksAddUpToTheSummary() throws Exception {
+        GameSession session = session();
+        PokerInfo data = request(1000, AutoPlay.Strategy.QUEEN_SIX_FOUR.ordinal(), true, 1_000_000);
+        List<PokerInfo> chunks = new ArrayList<>();
+
+        session.process(data, chunks::add);
+
+        assertEquals(1000, data.rounds);
+        assertEquals((1000 + PokerInfo.MAX_HANDS - 1) / PokerInfo.MAX_HANDS, chunks.size());
+        int net = 0, played = 0, won = 0, hands = 0;
+        for (PokerInfo chunk : chunks) {
+            assertEquals(6, chunk.buttonPressed);
+            assertEquals(7, chunk.requestId);
+            for (long record : chunk.hands) {
+                hands++;
+                net += AutoPlay.net(record);
+                if (AutoPlay.played(record)) {
+                    played++;
+                    assertTrue(AutoPlay.Strategy.QUEEN_SIX_FOUR.plays(AutoPlay.playerHand(record)));
+                    if (AutoPlay.winner(record) == 1) {
+                        won++;
+                    }
+                } else {
+                    assertEquals(-15, AutoPlay.net(record), "A fold loses ante and pair plus");
+                }
+            }
+        }
+        assertEquals(1000, hands);
+        assertEquals(net, data.winningsThisRound);
+        assertEquals(played, data.handsPlayed);
+        assertEquals(won, data.handsWon);
+        assertEquals(1_000_000 + net, data.cash);
+        assertEquals(data.cash, session.player.getTotalWinnings());
+        assertNull(data.hands);
+    }
+
+    @Test
+    void stopsWhenWagersCanNoLongerBeCovered() throws Exception {
+        PokerInfo data = request(100_000, AutoPlay.Strategy.ALWAYS_PLAY.ordinal(), false, 100);
+
+        session().process(data, null);
+
+        assertTrue(data.rounds < 100_000);
+        assertTrue(data.cash < 25, "Stops only when ante, play and pair plus no longer fit");
+    }
+
+    @Test
+    void rejectsUnknownStrategyAndRoundCounts() throws Exception {
+        PokerInfo unknown = request(10, 9, false, 200);
+        session().process(unknown, null);
+        assertEquals(0, unknown.rounds);
+        assertEquals(200, unknown.cash);
+
+        PokerInfo tooMany = request(AutoPlay.MAX_ROUNDS + 1, 0, false, 200);
+        session().process(tooMany, null);
+        assertEquals(0, tooMany.rounds);
+    }
+}
@@ -1,11 +1,17 @@
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 class CardTest {
 
     @Test
     void constructorAndGettersStoreSuitAndValCorrectly() {
-        Card c = new Card('H', 10);
+        Card c = Card.of('H', 10);
 
         assertEquals('H', c.getSuit(), "Suit should be Hearts");
         assertEquals(10, c.getValue(), "Value should be 10");
@@ -13,9 +19,9 @@ class CardTest {
 
     @Test
     void toStringReturnsNumericValueFor2To10() {
-        Card c2 =  new Card('C', 2);
-        Card c3 = new Card('D', 9);
-        Card c4 = new Card('S', 10);
+        Card c2 =  Card.of('C', 2);
+        Card c3 = Card.of('D', 9);
+        Card c4 = Card.of('S', 10);
 
         assertEquals("2C", c2.toString());
         assertEquals("9D", c3.toString());
@@ -24,10 +30,10 @@ class CardTest {
 
     @Test
     void toStringReturnsFaceLettersCorrectly() {
-        Card jack = new Card('H', 11);
-        Card queen = new Card('C', 12);
-        Card king = new Card('D', 13);
-        Card ace = new Card('S', 14);
+        Card jack = Card.of('H', 11);
+        Card queen = Card.of('C', 12);
+        Card king = Card.of('D', 13);
+        Card ace = Card.of('S', 14);
 
         assertEquals("JH", jack.toString());
         assertEquals("QC", queen.toString());
@@ -37,10 +43,46 @@ class CardTest {
 
     @Test
     void cardsWithSameSuitAndValueAreEquivalent() {
-        Card c1 = new Card('H', 14);
-        Card c2 = new Card('H', 14);
+        Card c1 = Card.of('H', 14);
+        Card c2 = Card.of('H', 14);
 
         assertEquals(c1.getSuit(), c2.getSuit());
         assertEquals(c1.getValue(), c2.getValue());
+        assertSame(c1, c2, "Cards should be canonical instances");
+    }
+
+    @Test
+    void ofRejectsNonStandardCards() {
+        assertThrows(IllegalArgumentException.class, () -> Card.of('X', 10));
+        assertThrows(IllegalArgumentException.class, () -> Card.of('H', 15));
+    }
+
+    @Test
+    void deserializedCardResolvesToCanonicalInstance() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(Card.of('D', 13));
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(Card.of('D', 13), in.readObject());
+        }
+    }
+
+    @Test
+    void serializedCardWithABadCodeIsRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(Card.of('S', 14));
+        }
+        byte[] stream = bytes.toByteArray();
+        
+        // The code is the one byte of block data before the end of the object
+        assertEquals(51, stream[stream.length - 2]);
+        stream[stream.length - 2] = 52;
+        
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stream))) {
+            assertThrows(InvalidObjectException.class, in::readObject);
+        }
     }
 }
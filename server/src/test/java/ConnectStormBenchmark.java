@@ -0,0 +1,68 @@
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measures connections per second while many clients reconnect at once, as
+// after a deploy: each client thread connects, reads the welcome and closes,
+// over and over. Compares the old single acceptor with a 50 connection backlog
+// against several acceptors with their own SO_REUSEPORT listeners.
+// Not part of the test run; after mvn test-compile run it with
+//   java -cp target/classes:target/test-classes ConnectStormBenchmark [engine] [clients] [seconds]
+public class ConnectStormBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        ServerConfig.Engine engine = ServerConfig.Engine.valueOf(args.length > 0 ? args[0].toUpperCase() : "NIO");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int acceptors = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+        run(engine, 1, 50, clients, 1, false);
+        run(engine, acceptors, 1024, clients, 1, false);
+        run(engine, 1, 50, clients, seconds, true);
+        run(engine, acceptors, 1024, clients, seconds, true);
+    }
+
+    private static void run(ServerConfig.Engine engine, int acceptors, int backlog, int clients,
+                            int seconds, boolean print) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        ServerConfig config = new ServerConfig();
+        config.engine = engine;
+        config.acceptors = acceptors;
+        config.acceptBacklog = backlog;
+        config.idleTimeoutMillis = 0;
+        Server server = new Server(config, port);
+        server.startServer();
+        Thread.sleep(200);
+
+        LongAdder connections = new LongAdder();
+        LongAdder failures = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    try (PokerConnection connection = PokerConnection.connect("127.0.0.1", port, PokerConnection.Mode.DELTA)) {
+                        connection.read();
+                        connections.increment();
+                    } catch (Exception e) {
+                        failures.increment();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        server.stopServer();
+
+        if (print) {
+            System.out.printf("%-8s acceptors %2d backlog %4d  %8.0f connections/s  %d failed%n",
+                    engine, acceptors, backlog, connections.sum() / (double) seconds, failures.sum());
+        }
+    }
+}
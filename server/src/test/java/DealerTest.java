@@ -51,11 +51,24 @@ public class DealerTest {
     void setDealersHandStoresAndReturnsSameReference() {
         ArrayList<Card> customHand = new ArrayList<>();
 
-        customHand.add(new Card('H', 14));
-        customHand.add(new Card('C', 13));
-        customHand.add(new Card('D', 12));
+        customHand.add(Card.of('H', 14));
+        customHand.add(Card.of('C', 13));
+        customHand.add(Card.of('D', 12));
 
         dealer.setDealersHand(customHand);
         assertSame(customHand, dealer.getDealersHand());
     }
+
+    @Test
+    void packedDealerDealsDistinctHandsUntilNewRound() {
+        Dealer packedDealer = new Dealer(new PackedDeck());
+        packedDealer.newRound();
+
+        int first = packedDealer.dealPackedHand();
+        int second = packedDealer.dealPackedHand();
+
+        assertEquals(0, PackedCards.mask(first) & PackedCards.mask(second),
+                "Hands from the same round should not share cards");
+        assertEquals(3, packedDealer.dealHand().size());
+    }
 }
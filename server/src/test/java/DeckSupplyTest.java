@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeckSupplyTest {
+
+    @Test
+    void emptySupplyCountsInlineShuffle() {
+        DeckSupply supply = new DeckSupply(4, ShuffleRandom.threadLocal());
+
+        assertNull(supply.take(), "Supply that was never started should be empty");
+        assertEquals(1, supply.getInlineShuffles());
+        assertEquals(0, supply.getPooledDeals());
+    }
+
+    @Test
+    void startedSupplyHandsOutShuffledDecks() throws InterruptedException {
+        DeckSupply supply = new DeckSupply(4, ShuffleRandom.threadLocal());
+        supply.start();
+
+        PackedDeck deck = null;
+        for (int tries = 0; deck == null && tries < 200; tries++) {
+            Thread.sleep(5);
+            deck = supply.take();
+        }
+        supply.stop();
+
+        assertNotNull(deck, "Producer should fill the pool");
+        assertEquals(52, deck.remaining());
+        assertEquals(3, Long.bitCount(PackedCards.mask(deck.dealHand())));
+        assertEquals(1, supply.getPooledDeals());
+    }
+
+    @Test
+    void dealerFallsBackToOwnDeckWhenSupplyIsDry() {
+        DeckSupply supply = new DeckSupply(4, ShuffleRandom.threadLocal());
+        Dealer dealer = new Dealer(new PackedDeck(), supply);
+
+        dealer.newRound();
+        int hand = dealer.dealPackedHand();
+
+        assertEquals(3, Long.bitCount(PackedCards.mask(hand)));
+        assertEquals(1, supply.getInlineShuffles());
+    }
+}
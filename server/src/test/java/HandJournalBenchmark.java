@@ -0,0 +1,58 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Time per HandJournal.append on the game threads, single threaded and with
+// several sessions appending at once. The journal goes to a temporary directory
+// that is deleted afterwards.
+// Not part of the test run; after mvn test-compile run it with
+//   java -cp target/classes:target/test-classes HandJournalBenchmark [threads]
+public class HandJournalBenchmark {
+
+    private static final int WARMUP = 1_000_000;
+    private static final int ROUNDS = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Path dir = Files.createTempDirectory("hand-journal");
+        try (HandJournal journal = new HandJournal(dir, HandJournal.DEFAULT_SEGMENT_RECORDS, HandJournal.DEFAULT_FLUSH_MILLIS)) {
+            run(journal, 1, WARMUP, false);
+            run(journal, 1, ROUNDS, true);
+            run(journal, threads, ROUNDS, true);
+        } finally {
+            for (Path segment : HandJournal.segments(dir)) {
+                Files.delete(segment);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void run(HandJournal journal, int threads, int rounds, boolean print) throws Exception {
+        int perThread = rounds / threads;
+        List<Thread> writers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int session = t;
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(session, 0, HandJournal.PLAYED, 1, (byte) 0, i, i, 5, 5, 5, 10, i);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        long nanos = System.nanoTime() - start;
+        if (print) {
+            System.out.printf("%d thread(s): %6.1f ns per append (wall time / appends)%n",
+                    threads, (double) nanos / (perThread * threads));
+        }
+    }
+}
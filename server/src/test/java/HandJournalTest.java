@@ -0,0 +1,201 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HandJournalTest {
+    
+    @TempDir
+    Path dir;
+    
+    private static List<HandJournal.Entry> readAll(Path dir) throws IOException {
+        List<HandJournal.Entry> entries = new ArrayList<>();
+        HandJournal.readAll(dir, entries::add);
+        return entries;
+    }
+    
+    @Test
+    void readsBackEveryField() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 16, 1000)) {
+            assertEquals(1, journal.append(7, 0x8000000000000042L, HandJournal.PLAYED, 1, HandJournal.AUTO, 0x12345, 0x2345, 10, 5, 10, 25, 225));
+        }
+        
+        HandJournal.Entry entry = readAll(dir).get(0);
+        assertEquals(1, entry.sequence);
+        assertTrue(entry.timeMillis > 0);
+        assertEquals(7, entry.session);
+        assertEquals(0x8000000000000042L, entry.player);
+        assertEquals(HandJournal.PLAYED, entry.type);
+        assertEquals(1, entry.winner);
+        assertEquals(HandJournal.AUTO, entry.flags);
+        assertEquals(0x12345, entry.playerHand);
+        assertEquals(0x2345, entry.dealerHand);
+        assertEquals(10, entry.ante);
+        assertEquals(5, entry.pairPlus);
+        assertEquals(10, entry.play);
+        assertEquals(25, entry.net);
+        assertEquals(225, entry.cash);
+    }
+    
+    @Test
+    void rollsOverToNewSegments() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(i, 0, HandJournal.FOLDED, 2, (byte) 0, 0, 0, 5, 0, 0, -5, 100 - i);
+            }
+        }
+        
+        assertEquals(3, HandJournal.segments(dir).size());
+        List<HandJournal.Entry> entries = readAll(dir);
+        assertEquals(10, entries.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, entries.get(i).sequence);
+            assertEquals(100 - i, entries.get(i).cash);
+        }
+    }
+    
+    @Test
+    void concurrentAppendsAreAllKept() throws Exception {
+        int threads = 4;
+        int perThread = 2_000;
+        try (HandJournal journal = new HandJournal(dir, 256, 5)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int session = t;
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        try {
+                            journal.append(session, 0, HandJournal.PLAYED, 1, (byte) 0, 0, 0, 5, 0, 5, 10, i);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+                writer.start();
+                writers.add(writer);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        
+        int[] next = new int[threads];
+        for (HandJournal.Entry entry : readAll(dir)) {
+            assertEquals(next[entry.session]++, entry.cash, "each session's rounds stay in order");
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread, next[t]);
+        }
+    }
+    
+    @Test
+    void reopeningCarriesOnAfterTheLastCompleteRecord() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(1, 0, HandJournal.PLAYED, 1, (byte) 0, 0, 0, 5, 0, 5, 10, i);
+            }
+        }
+        // As if the process died while writing record 2 of the second segment
+        Path second = HandJournal.segments(dir).get(1);
+        try (FileChannel channel = FileChannel.open(second, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.putLong(HandJournal.RECORD_SIZE + HandJournal.SEQUENCE, 0);
+        }
+        
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            assertEquals(6, journal.nextSequence());
+            journal.append(1, 0, HandJournal.PLAYED, 1, (byte) 0, 0, 0, 5, 0, 5, 10, 99);
+        }
+        
+        List<HandJournal.Entry> entries = readAll(dir);
+        assertEquals(6, entries.size());
+        assertEquals(99, entries.get(5).cash);
+    }
+    
+    @Test
+    void flusherMapsTheNextSegmentBeforeRollover() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 10)) {
+            journal.append(1, 0, HandJournal.FOLDED, 2, (byte) 0, 0, 0, 5, 0, 0, -5, 95);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (HandJournal.segments(dir).size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, HandJournal.segments(dir).size(), "The next segment should be there before it is needed");
+            
+            for (int i = 0; i < 4; i++) {
+                journal.append(1, 0, HandJournal.FOLDED, 2, (byte) 0, 0, 0, 5, 0, 0, -5, 90 - i * 5);
+            }
+        }
+        
+        assertEquals(2, HandJournal.segments(dir).size(), "A segment mapped ahead but never reached is removed");
+        List<HandJournal.Entry> entries = readAll(dir);
+        assertEquals(5, entries.size());
+        assertEquals(75, entries.get(4).cash);
+    }
+    
+    @Test
+    void refusesToChangeTheSegmentSize() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            journal.append(1, 0, HandJournal.PLAYED, 1, (byte) 0, 0, 0, 5, 0, 5, 10, 0);
+        }
+        assertThrows(IOException.class, () -> new HandJournal(dir, 8, 1000));
+    }
+    
+    @Test
+    void sessionsJournalEveryRoundTransition() throws Exception {
+        Server server = new Server(message -> { }, "0");
+        try (HandJournal journal = new HandJournal(dir, 1024, 1000)) {
+            server.journal = journal;
+            GameSession session = new GameSession(server, 3, () -> { }, new Dealer());
+            
+            PokerInfo deal = new PokerInfo(5, 5, 200);
+            deal.buttonPressed = 1;
+            session.process(deal);
+            PokerInfo play = new PokerInfo(5, 5, deal.cash);
+            play.buttonPressed = 2;
+            session.process(play);
+            
+            deal.buttonPressed = 1;
+            session.process(deal);
+            PokerInfo fold = new PokerInfo(5, 5, deal.cash);
+            fold.buttonPressed = 3;
+            session.process(fold);
+            
+            PokerInfo auto = new PokerInfo(5, 0, fold.cash);
+            auto.buttonPressed = 5;
+            auto.rounds = 3;
+            session.process(auto);
+            
+            PokerInfo fresh = new PokerInfo();
+            fresh.buttonPressed = 4;
+            session.process(fresh);
+        }
+        
+        List<HandJournal.Entry> entries = readAll(dir);
+        assertEquals(8, entries.size());
+        HandJournal.Entry dealt = entries.get(0);
+        assertEquals(3, dealt.session);
+        assertEquals(HandJournal.DEALT, dealt.type);
+        assertEquals(-10, dealt.net);
+        assertEquals(190, dealt.cash);
+        HandJournal.Entry played = entries.get(1);
+        assertEquals(HandJournal.PLAYED, played.type);
+        assertEquals(5, played.play);
+        assertEquals(dealt.playerHand, played.playerHand);
+        assertEquals(HandJournal.DEALT, entries.get(2).type);
+        assertEquals(HandJournal.FOLDED, entries.get(3).type);
+        assertEquals(-10, entries.get(3).net);
+        assertEquals(entries.get(2).cash, entries.get(3).cash);
+        assertEquals(HandJournal.AUTO, entries.get(6).flags);
+        assertEquals(entries.get(5).cash + entries.get(6).net, entries.get(6).cash);
+        assertEquals(HandJournal.FRESH_START, entries.get(7).type);
+        assertEquals(200, entries.get(7).cash);
+    }
+}
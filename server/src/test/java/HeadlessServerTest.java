@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public class HeadlessServerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void laterArgumentsOverrideTheConfigFileAndSystemProperties() throws Exception {
+        Path file = dir.resolve("server.properties");
+        Files.writeString(file, "poker.port=6000\npoker.engine=nio\npoker.nioLoops=3\n");
+        Properties base = new Properties();
+        base.setProperty("poker.engine", "virtual");
+        base.setProperty("poker.deckPool", "8");
+
+        Properties settings = HeadlessServer.settings(
+                new String[] {"--config", file.toString(), "--port", "6001", "poker.nioLoops=5"}, base);
+        ServerConfig config = ServerConfig.fromProperties(settings);
+
+        assertEquals(6001, HeadlessServer.port(settings));
+        assertEquals(ServerConfig.Engine.NIO, config.engine);
+        assertEquals(5, config.nioLoops);
+        assertEquals(8, config.deckPoolSize);
+    }
+
+    @Test
+    void defaultsToPort5555() throws Exception {
+        assertEquals(HeadlessServer.DEFAULT_PORT, HeadlessServer.port(HeadlessServer.settings(new String[0], new Properties())));
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        Properties none = new Properties();
+        assertThrows(IllegalArgumentException.class, () -> HeadlessServer.settings(new String[] {"--port"}, none));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessServer.settings(new String[] {"--verbose"}, none));
+        assertThrows(IOException.class,
+                () -> HeadlessServer.settings(new String[] {"--config", dir.resolve("missing").toString()}, none));
+        assertThrows(IllegalArgumentException.class,
+                () -> HeadlessServer.port(HeadlessServer.settings(new String[] {"--port", "70000"}, none)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ServerConfig.fromProperties(HeadlessServer.settings(new String[] {"poker.nioLoops=two"}, none)));
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdleReaperTest {
+
+    private final Server server = new Server(message -> { }, "0");
+
+    private GameSession session(AtomicInteger closes) {
+        return new GameSession(server, 1, closes::incrementAndGet, new Dealer());
+    }
+
+    private void waitFor(AtomicInteger closes, long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        while (closes.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void closesSessionsThatStayIdle() throws Exception {
+        IdleReaper reaper = new IdleReaper(100, 5, 8);
+        reaper.start();
+        try {
+            AtomicInteger closes = new AtomicInteger();
+            long start = System.nanoTime();
+            reaper.watch(session(closes));
+            waitFor(closes, 2_000);
+            assertEquals(1, closes.get());
+            assertTrue(System.nanoTime() - start >= 100_000_000L, "closed before the idle timeout");
+
+            Thread.sleep(100);
+            assertEquals(1, closes.get(), "a closed session stays in the wheel");
+        } finally {
+            reaper.stop();
+        }
+    }
+
+    @Test
+    void activityPushesTheDeadlineBack() throws Exception {
+        // Eight slots of 5ms are shorter than the timeout, so entries go round the wheel
+        IdleReaper reaper = new IdleReaper(100, 5, 8);
+        reaper.start();
+        try {
+            AtomicInteger closes = new AtomicInteger();
+            GameSession session = session(closes);
+            reaper.watch(session);
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(30);
+                PokerInfo ping = new PokerInfo();
+                ping.buttonPressed = 7;
+                session.process(ping);
+            }
+            assertEquals(0, closes.get());
+            waitFor(closes, 2_000);
+            assertEquals(1, closes.get());
+        } finally {
+            reaper.stop();
+        }
+    }
+
+    @Test
+    void ignoresSessionsThatHaveEnded() throws Exception {
+        IdleReaper reaper = new IdleReaper(50, 5, 8);
+        reaper.start();
+        try {
+            AtomicInteger closes = new AtomicInteger();
+            GameSession session = session(closes);
+            reaper.watch(session);
+            session.release();
+            Thread.sleep(200);
+            assertEquals(0, closes.get());
+        } finally {
+            reaper.stop();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new IdleReaper(0, 5, 8));
+        assertThrows(IllegalArgumentException.class, () -> new IdleReaper(100, 0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new IdleReaper(100, 5, 0));
+    }
+}
@@ -33,16 +33,16 @@ public class IntegrationTests {
         // FORCE HANDS FOR A CONTROLLED ROUND
         // Player: Pair of 9s
         player.setHand(hand(
-                new Card('H', 9),
-                new Card('D', 9),
-                new Card('C', 4)
+                Card.of('H', 9),
+                Card.of('D', 9),
+                Card.of('C', 4)
         ));
 
         // Dealer: High card only, below Queen -> does NOT qualify
         ArrayList<Card> dealerHand = hand(
-                new Card('S', 10),
-                new Card('H', 8),
-                new Card('D', 5)
+                Card.of('S', 10),
+                Card.of('H', 8),
+                Card.of('D', 5)
         );
         dealer.setDealersHand(dealerHand);
 
@@ -88,17 +88,17 @@ public class IntegrationTests {
 
         // Player: Straight (4,5,6)
         ArrayList<Card> pHand = hand(
-                new Card('H', 4),
-                new Card('C', 5),
-                new Card('D', 6)
+                Card.of('H', 4),
+                Card.of('C', 5),
+                Card.of('D', 6)
         );
         player.setHand(pHand);
 
         // Dealer: Straight Flush (10,J,Q of hearts)
         ArrayList<Card> dHand = hand(
-                new Card('H', 10),
-                new Card('H', 11),
-                new Card('H', 12)
+                Card.of('H', 10),
+                Card.of('H', 11),
+                Card.of('H', 12)
         );
         dealer.setDealersHand(dHand);
 
@@ -129,9 +129,9 @@ public class IntegrationTests {
         player.setPairPlusBet(0);
 
         ArrayList<Card> tieHand = hand(
-                new Card('C', 10),
-                new Card('D', 11),
-                new Card('S', 12)
+                Card.of('C', 10),
+                Card.of('D', 11),
+                Card.of('S', 12)
         ); // straight
 
         dealer.setDealersHand(tieHand);
@@ -197,16 +197,16 @@ public class IntegrationTests {
 
         // Player: Flush
         player.setHand(hand(
-                new Card('H', 3),
-                new Card('H', 9),
-                new Card('H', 12)
+                Card.of('H', 3),
+                Card.of('H', 9),
+                Card.of('H', 12)
         ));
 
         // Dealer: High card, Queen-high -> qualifies
         dealer.setDealersHand(hand(
-                new Card('S', 14),
-                new Card('D', 2),
-                new Card('C', 7)
+                Card.of('S', 14),
+                Card.of('D', 2),
+                Card.of('C', 7)
         ));
 
         int outcome1 = ThreeCardLogic.compareHands(dealer.getDealersHand(), player.getHand());
@@ -225,16 +225,16 @@ public class IntegrationTests {
 
         // Player: High card only
         player.setHand(hand(
-                new Card('C', 5),
-                new Card('D', 7),
-                new Card('H', 9)
+                Card.of('C', 5),
+                Card.of('D', 7),
+                Card.of('H', 9)
         ));
 
         // Dealer: Pair -> wins
         dealer.setDealersHand(hand(
-                new Card('C', 4),
-                new Card('H', 4),
-                new Card('D', 10)
+                Card.of('C', 4),
+                Card.of('H', 4),
+                Card.of('D', 10)
         ));
 
         int outcome2 = ThreeCardLogic.compareHands(dealer.getDealersHand(), player.getHand());
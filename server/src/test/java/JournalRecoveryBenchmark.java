@@ -0,0 +1,56 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Time to rebuild every player's state from a journal of millions of rounds,
+// reading its segments on one thread and on several, and from a snapshot with
+// a short tail. The journal goes to a temporary directory that is deleted
+// afterwards.
+// Not part of the test run; after mvn test-compile run it with
+//   java -cp target/classes:target/test-classes JournalRecoveryBenchmark [rounds] [threads]
+public class JournalRecoveryBenchmark {
+    
+    private static final int PLAYERS = 100_000;
+    
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path dir = Files.createTempDirectory("journal-recovery");
+        try {
+            try (HandJournal journal = new HandJournal(dir, HandJournal.DEFAULT_SEGMENT_RECORDS, HandJournal.DEFAULT_FLUSH_MILLIS)) {
+                for (int i = 0; i < rounds; i++) {
+                    long player = 1 + i % PLAYERS;
+                    byte type = i % 2 == 0 ? HandJournal.DEALT : HandJournal.PLAYED;
+                    journal.append(1, player, type, 1, (byte) 0, i, i, 5, 5, 5, 10, i);
+                }
+            }
+            System.out.printf("%,d rounds for %,d players%n", rounds, PLAYERS);
+            time(dir, 1);
+            time(dir, 1);
+            time(dir, threads);
+            
+            JournalRecovery.snapshot(dir, threads);
+            try (HandJournal journal = new HandJournal(dir, HandJournal.DEFAULT_SEGMENT_RECORDS, HandJournal.DEFAULT_FLUSH_MILLIS)) {
+                for (int i = 0; i < 10_000; i++) {
+                    journal.append(1, 1 + i % PLAYERS, HandJournal.PLAYED, 1, (byte) 0, i, i, 5, 5, 5, 10, i);
+                }
+            }
+            time(dir, threads);
+        } finally {
+            for (Path file : HandJournal.segments(dir)) {
+                Files.delete(file);
+            }
+            for (Path file : JournalRecovery.snapshots(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+    
+    private static void time(Path dir, int threads) throws Exception {
+        long start = System.nanoTime();
+        JournalRecovery.Result result = JournalRecovery.recover(dir, threads);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%d thread(s), snapshot #%d: %,d records replayed, %,d players in %d ms%n",
+                threads, result.snapshotSequence, result.replayed, result.players.size(), millis);
+    }
+}
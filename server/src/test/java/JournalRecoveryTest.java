@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JournalRecoveryTest {
+    
+    @TempDir
+    Path dir;
+    
+    private static void deal(HandJournal journal, long player, int ante, int pairPlus, int cash) throws Exception {
+        journal.append(1, player, HandJournal.DEALT, 0, (byte) 0, 0x111, 0x222, ante, pairPlus, 0, -ante - pairPlus, cash);
+    }
+    
+    private static void play(HandJournal journal, long player, int net, int cash) throws Exception {
+        journal.append(1, player, HandJournal.PLAYED, 1, (byte) 0, 0x111, 0x222, 5, 0, 5, net, cash);
+    }
+    
+    @Test
+    void theLastRecordForEachPlayerIsTheirState() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            deal(journal, 1, 5, 0, 195);
+            play(journal, 1, 10, 210);
+            deal(journal, 2, 10, 5, 185);
+            deal(journal, 0, 5, 0, 195); // a client that never identified
+            journal.append(1, 2, HandJournal.FOLDED, 2, (byte) 0, 0, 0, 10, 5, 0, -15, 185);
+            for (int i = 0; i < 10; i++) {
+                deal(journal, 1, 5, 0, 205 - i * 10);
+                play(journal, 1, -10, 200 - i * 10);
+            }
+            deal(journal, 2, 10, 5, 170);
+            journal.append(1, 3, HandJournal.FRESH_START, 0, (byte) 0, 0, 0, 0, 0, 0, 0, 200);
+        }
+        
+        JournalRecovery.Result result = JournalRecovery.recover(dir, 4);
+        assertEquals(27, result.lastSequence);
+        assertEquals(27, result.replayed);
+        assertEquals(3, result.players.size(), "Unidentified clients have no state to recover");
+        
+        JournalRecovery.PlayerState one = result.players.get(1L);
+        assertEquals(110, one.cash);
+        assertFalse(one.inRound);
+        
+        JournalRecovery.PlayerState two = result.players.get(2L);
+        assertEquals(170, two.cash);
+        assertTrue(two.inRound, "Dealt but never played or folded");
+        assertEquals(10, two.ante);
+        assertEquals(5, two.pairPlus);
+        assertEquals(0x111, two.playerHand);
+        assertEquals(0x222, two.dealerHand);
+        
+        assertEquals(200, result.players.get(3L).cash);
+    }
+    
+    @Test
+    void onlyTheJournalAfterTheSnapshotIsRead() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            for (int i = 0; i < 9; i++) {
+                play(journal, 1 + i % 2, 10, 200 + i);
+            }
+        }
+        JournalRecovery.snapshot(dir, 2);
+        assertEquals(1, JournalRecovery.snapshots(dir).size());
+        
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            deal(journal, 2, 5, 5, 197);
+        }
+        
+        JournalRecovery.Result result = JournalRecovery.recover(dir, 2);
+        assertEquals(9, result.snapshotSequence);
+        assertEquals(1, result.replayed);
+        assertEquals(208, result.players.get(1L).cash);
+        assertEquals(197, result.players.get(2L).cash);
+        assertTrue(result.players.get(2L).inRound);
+        
+        JournalRecovery.snapshot(dir, 2);
+        assertEquals(JournalRecovery.snapshotPath(dir, 10), JournalRecovery.snapshots(dir).get(0));
+        assertEquals(1, JournalRecovery.snapshots(dir).size(), "Older snapshots are deleted");
+        JournalRecovery.PlayerState restored = JournalRecovery.recover(dir, 2).players.get(2L);
+        assertTrue(restored.inRound, "A round in progress survives the snapshot");
+        assertEquals(5, restored.pairPlus);
+    }
+    
+    @Test
+    void aDamagedSnapshotFallsBackToTheWholeJournal() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            for (int i = 0; i < 6; i++) {
+                play(journal, 1, 10, 210 + i);
+            }
+        }
+        JournalRecovery.snapshot(dir, 2);
+        Path snapshot = JournalRecovery.snapshots(dir).get(0);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[20] ^= 1;
+        Files.write(snapshot, bytes);
+        
+        JournalRecovery.Result result = JournalRecovery.recover(dir, 2);
+        assertEquals(0, result.snapshotSequence);
+        assertEquals(6, result.replayed);
+        assertEquals(215, result.players.get(1L).cash);
+    }
+    
+    @Test
+    void aSnapshotAheadOfTheJournalIsIgnored() throws Exception {
+        try (HandJournal journal = new HandJournal(dir, 4, 1000)) {
+            play(journal, 1, 10, 210);
+        }
+        JournalRecovery.writeSnapshot(dir, 50, java.util.List.of(new JournalRecovery.PlayerState(1)));
+        
+        JournalRecovery.Result result = JournalRecovery.recover(dir, 1);
+        assertEquals(0, result.snapshotSequence);
+        assertEquals(210, result.players.get(1L).cash);
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+
+public class LogLinesTest {
+
+    // Replays change events onto a plain list, as a ListView would
+    private static List<String> mirror(LogLines lines, int[] changes) {
+        List<String> copy = new ArrayList<>(lines);
+        lines.addListener((ListChangeListener<String>) change -> {
+            changes[0]++;
+            while (change.next()) {
+                for (int i = 0; i < change.getRemovedSize(); i++) {
+                    copy.remove(change.getFrom());
+                }
+                copy.addAll(change.getFrom(), change.getAddedSubList());
+            }
+        });
+        return copy;
+    }
+
+    @Test
+    void showsTheNewestLineFirst() {
+        LogLines lines = new LogLines(5);
+        lines.addNewest(List.of("a", "b"));
+        lines.addNewest(List.of("c"));
+
+        assertEquals(List.of("c", "b", "a"), lines);
+    }
+
+    @Test
+    void dropsTheOldestLinesOnceFull() {
+        LogLines lines = new LogLines(4);
+        int[] changes = new int[1];
+        List<String> copy = mirror(lines, changes);
+
+        lines.addNewest(List.of("1", "2", "3"));
+        lines.addNewest(List.of("4", "5", "6"));
+
+        assertEquals(List.of("6", "5", "4", "3"), lines);
+        assertEquals(lines, copy);
+        assertEquals(2, changes[0], "one change event per batch");
+    }
+
+    @Test
+    void keepsOnlyTheNewestOfABatchLargerThanTheCapacity() {
+        LogLines lines = new LogLines(3);
+        int[] changes = new int[1];
+        lines.addNewest(List.of("old"));
+        List<String> copy = mirror(lines, changes);
+
+        lines.addNewest(List.of("1", "2", "3", "4", "5"));
+
+        assertEquals(List.of("5", "4", "3"), lines);
+        assertEquals(lines, copy);
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.get(3));
+    }
+
+    @Test
+    void ignoresEmptyBatches() {
+        LogLines lines = new LogLines(3);
+        int[] changes = new int[1];
+        mirror(lines, changes);
+        lines.addNewest(List.of());
+
+        assertEquals(0, changes[0]);
+        assertTrue(lines.isEmpty());
+    }
+}
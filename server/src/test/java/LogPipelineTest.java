@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class LogPipelineTest {
+
+    // Collects every message in delivery order
+    private static class Collector implements LogSink {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        @Override
+        public void write(List<LogEvent> batch) {
+            for (LogEvent event : batch) {
+                messages.add(event.message());
+            }
+        }
+    }
+
+    @Test
+    void formatsPlaceholdersInOrder() {
+        assertEquals("Client 3 won $15", LogEvent.format("Client {} won ${}", new Object[] {3, 15}));
+        assertEquals("no args {}", LogEvent.format("no args {}", new Object[0]));
+        assertEquals("a 1 {}", LogEvent.format("a {} {}", new Object[] {1}));
+        assertEquals("x null", LogEvent.format("x {}", new Object[] {null}));
+    }
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertEquals(8, new LogPipeline(5).capacity());
+        assertEquals(8, new LogPipeline(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new LogPipeline(0));
+    }
+
+    @Test
+    void deliversEveryEventFromEveryThreadInPerThreadOrder() throws Exception {
+        LogPipeline pipeline = new LogPipeline(1024);
+        Collector sink = new Collector();
+        pipeline.addSink(sink);
+        pipeline.start();
+
+        int threads = 4;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    while (!pipeline.log("{} {}", id, i)) {
+                        Thread.yield(); // Ring full, this test wants every event
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        pipeline.stop();
+
+        int[] next = new int[threads];
+        int dropNotes = 0;
+        for (String message : sink.messages) {
+            if (message.endsWith("the log buffer was full")) {
+                dropNotes++;
+                continue;
+            }
+            String[] parts = message.split(" ");
+            int id = Integer.parseInt(parts[0]);
+            assertEquals(next[id]++, Integer.parseInt(parts[1]), "events from one thread stay in order");
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread, next[t]);
+        }
+        assertEquals(threads * perThread + dropNotes, sink.messages.size());
+    }
+
+    @Test
+    void dropsWhenFullAndReportsHowMany() {
+        LogPipeline pipeline = new LogPipeline(4);
+        Collector sink = new Collector();
+        pipeline.addSink(sink);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, pipeline.log("event {}", i));
+        }
+        pipeline.start();
+        pipeline.stop();
+
+        assertEquals(List.of("event 0", "event 1", "event 2", "event 3",
+                "2 log messages dropped, the log buffer was full"), sink.messages);
+    }
+
+    @Test
+    void flushWaitsForDeliveryAndBrokenSinksDoNotStopOthers() {
+        LogPipeline pipeline = new LogPipeline(64);
+        pipeline.addSink(batch -> {
+            throw new IllegalStateException("broken sink");
+        });
+        Collector sink = new Collector();
+        pipeline.addSink(sink);
+        pipeline.start();
+        try {
+            pipeline.log("first");
+            pipeline.flush();
+            assertEquals(List.of("first"), sink.messages);
+            pipeline.log("second");
+            pipeline.flush();
+            assertEquals(List.of("first", "second"), sink.messages);
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void writerSinkWritesOneTimestampedLinePerEvent() throws Exception {
+        StringWriter out = new StringWriter();
+        WriterLogSink sink = new WriterLogSink(out, true);
+        sink.write(List.of(new LogEvent(0, "Client {} disconnected", new Object[] {7}),
+                new LogEvent(0, "Server stopped", null)));
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].matches("\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d\\.\\d{3} Client 7 disconnected"), lines[0]);
+        assertTrue(lines[1].endsWith(" Server stopped"));
+    }
+}
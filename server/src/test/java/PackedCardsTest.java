@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+public class PackedCardsTest {
+
+    private ArrayList<Card> hand(Card c1, Card c2, Card c3) {
+        ArrayList<Card> list = new ArrayList<>();
+        list.add(c1);
+        list.add(c2);
+        list.add(c3);
+        return list;
+    }
+
+    @Test
+    void codesRoundTripThroughCard() {
+        for (int code = 0; code < PackedCards.CARDS_IN_DECK; code++) {
+            Card c = Card.fromCode(code);
+
+            assertEquals(code, c.code());
+            assertEquals(c.toString(), PackedCards.toString(code));
+        }
+    }
+
+    @Test
+    void nonStandardCardHasNoCode() {
+        assertEquals(-1, PackedCards.code('X', 10));
+        assertEquals(-1, PackedCards.code('H', 1));
+    }
+
+    @Test
+    void packAndUnpackKeepCardOrder() {
+        ArrayList<Card> h = hand(Card.of('S', 14), Card.of('C', 2), Card.of('H', 11));
+        int packed = PackedCards.pack(h);
+        ArrayList<Card> back = PackedCards.unpack(packed);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(h.get(i).getSuit(), back.get(i).getSuit());
+            assertEquals(h.get(i).getValue(), back.get(i).getValue());
+        }
+    }
+
+    @Test
+    void maskConvertsToAndFromPackedHand() {
+        int packed = PackedCards.hand(40, 3, 17);
+        long mask = PackedCards.mask(packed);
+
+        assertEquals(3, Long.bitCount(mask));
+        assertEquals(PackedCards.hand(3, 17, 40), PackedCards.fromMask(mask));
+    }
+
+    @Test
+    void packedOverloadsMatchCardOverloads() {
+        ArrayList<Card> dealer = hand(Card.of('D', 12), Card.of('C', 5), Card.of('H', 9));
+        ArrayList<Card> player = hand(Card.of('H', 10), Card.of('H', 11), Card.of('H', 12));
+        int pDealer = PackedCards.pack(dealer);
+        int pPlayer = PackedCards.pack(player);
+
+        assertEquals(ThreeCardLogic.evalHand(player), ThreeCardLogic.evalHand(pPlayer));
+        assertEquals(ThreeCardLogic.getHandDescription(dealer), ThreeCardLogic.getHandDescription(pDealer));
+        assertEquals(ThreeCardLogic.evalPPWinnings(player, 5), ThreeCardLogic.evalPPWinnings(pPlayer, 5));
+        assertEquals(ThreeCardLogic.dealerQualifies(dealer), ThreeCardLogic.dealerQualifies(pDealer));
+        assertEquals(ThreeCardLogic.compareHands(dealer, player), ThreeCardLogic.compareHands(pDealer, pPlayer));
+    }
+
+    @Test
+    void maskOverloadsMatchPackedOverloadsForEveryHand() {
+        int dealer = PackedCards.hand(10, 23, 36); // Queen high
+        long dealerMask = PackedCards.mask(dealer);
+        for (int c = 2; c < 52; c++) {
+            for (int b = 1; b < c; b++) {
+                for (int a = 0; a < b; a++) {
+                    int packed = PackedCards.hand(c, a, b);
+                    long mask = PackedCards.mask(packed);
+                    assertEquals(ThreeCardLogic.rank(packed), ThreeCardLogic.rank(mask));
+                    assertEquals(ThreeCardLogic.evalHand(packed), ThreeCardLogic.evalHand(mask));
+                    assertEquals(ThreeCardLogic.evalPPWinnings(packed, 5), ThreeCardLogic.evalPPWinnings(mask, 5));
+                    assertEquals(ThreeCardLogic.dealerQualifies(packed), ThreeCardLogic.dealerQualifies(mask));
+                    assertEquals(ThreeCardLogic.compareHands(dealer, packed), ThreeCardLogic.compareHands(dealerMask, mask));
+                }
+            }
+        }
+    }
+
+    @Test
+    void invalidPackedHandsAndMasksAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.rank(-1));
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.rank(PackedCards.hand(0, 1, 52)));
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.evalHand(1 << 20 | PackedCards.hand(0, 1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.rank(0b11L));
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.rank(0b1111L));
+        assertThrows(IllegalArgumentException.class, () -> ThreeCardLogic.rank(1L << 52 | 0b11L));
+    }
+}
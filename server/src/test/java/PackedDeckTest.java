@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedDeckTest {
+
+    private PackedDeck deck;
+
+    @BeforeEach
+    void deckSetup() {
+        deck = new PackedDeck();
+    }
+
+    @Test
+    void dealsEveryCardExactlyOnce() {
+        long seen = 0;
+
+        for (int i = 0; i < 52; i++) {
+            int code = deck.deal();
+            assertTrue(code >= 0 && code < 52, "Card code should be in range");
+            assertEquals(0, seen & (1L << code), "Card should not be dealt twice");
+            seen |= 1L << code;
+        }
+
+        assertEquals(52, Long.bitCount(seen));
+        assertEquals(0, deck.remaining());
+    }
+
+    @Test
+    void dealingPastTheEndThrows() {
+        for (int i = 0; i < 52; i++) {
+            deck.deal();
+        }
+
+        assertThrows(IllegalStateException.class, () -> deck.deal());
+    }
+
+    @Test
+    void resetRestoresFullDeck() {
+        deck.dealHand();
+        deck.dealHand();
+        assertEquals(46, deck.remaining());
+
+        deck.reset();
+        assertEquals(52, deck.remaining());
+    }
+
+    @Test
+    void dealHandPacksThreeDistinctCards() {
+        int hand = deck.dealHand();
+
+        assertEquals(3, Long.bitCount(PackedCards.mask(hand)));
+    }
+
+    @Test
+    void shuffleAllDealsEveryCardOnce() {
+        PackedDeck deck = new PackedDeck();
+        deck.shuffleAll();
+        long seen = 0;
+
+        while (deck.remaining() > 0) {
+            seen |= 1L << deck.deal();
+        }
+
+        assertEquals(52, Long.bitCount(seen));
+    }
+}
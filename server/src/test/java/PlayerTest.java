@@ -27,9 +27,9 @@ public class PlayerTest {
     @Test
     void setHandReplacesPlayerHand() {
         ArrayList<Card> newHand = new ArrayList<>();
-        newHand.add(new Card('H', 10));
-        newHand.add(new Card('H', 11));
-        newHand.add(new Card('H', 12));
+        newHand.add(Card.of('H', 10));
+        newHand.add(Card.of('H', 11));
+        newHand.add(Card.of('H', 12));
 
         player.setHand(newHand);
 
@@ -0,0 +1,192 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+
+public class PokerCodecTest {
+    
+    private PokerInfo roundTrip(PokerInfo info) throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+        PokerCodec.writeFrame(info, frame);
+        frame.flip();
+        
+        assertEquals(frame.remaining() - 2, frame.getShort(), "Length prefix should cover the body");
+        return PokerCodec.readBody(frame);
+    }
+    
+    @Test
+    void frameRoundTripsEveryField() throws Exception {
+        PokerInfo info = new PokerInfo(15, 5, 180);
+        info.play = 15;
+        info.winningsThisRound = -20;
+        info.buttonPressed = 2;
+        info.winner = 2;
+        info.hang = false;
+        info.playerWon = true;
+        info.card1 = "10S";
+        info.card2 = "AH";
+        info.card3 = "2C";
+        info.dCard1 = "QD";
+        info.dCard2 = "JS";
+        info.dCard3 = "KH";
+        info.pHandVal = "Ace High";
+        info.dHandVal = "Straight";
+        
+        PokerInfo back = roundTrip(info);
+        
+        assertEquals(15, back.ante);
+        assertEquals(5, back.pairPlus);
+        assertEquals(180, back.cash);
+        assertEquals(15, back.play);
+        assertEquals(-20, back.winningsThisRound);
+        assertEquals(2, back.buttonPressed);
+        assertEquals(2, back.winner);
+        assertFalse(back.hang);
+        assertFalse(back.playOver);
+        assertTrue(back.playerWon);
+        assertTrue(back.newRound);
+        assertEquals("10S", back.card1);
+        assertEquals("AH", back.card2);
+        assertEquals("2C", back.card3);
+        assertEquals("QD", back.dCard1);
+        assertEquals("JS", back.dCard2);
+        assertEquals("KH", back.dCard3);
+        assertEquals("Ace High", back.pHandVal);
+        assertEquals("Straight", back.dHandVal);
+    }
+    
+    @Test
+    void emptyCardsAndHandsStayEmpty() throws Exception {
+        PokerInfo back = roundTrip(new PokerInfo());
+        
+        assertEquals("", back.card1);
+        assertEquals("", back.dCard3);
+        assertEquals("", back.pHandVal);
+        assertEquals("", back.dHandVal);
+    }
+    
+    @Test
+    void cardCodesMatchPackedCards() {
+        for (int code = 0; code < 52; code++) {
+            assertEquals(code, PokerCodec.cardCode(PackedCards.toString(code)));
+            assertEquals(PackedCards.toString(code), PokerCodec.cardText(code));
+        }
+        assertEquals(PokerCodec.NO_CARD, PokerCodec.cardCode("1S"));
+        assertEquals(PokerCodec.NO_CARD, PokerCodec.cardCode("20S"));
+        assertEquals(PokerCodec.NO_CARD, PokerCodec.cardCode("QX"));
+    }
+    
+    @Test
+    void handDescriptionsFromThreeCardLogicRoundTrip() throws Exception {
+        for (int code = 0; code < 52 * 52 * 52; code += 97) {
+            int a = code % 52, b = code / 52 % 52, c = code / 2704;
+            if (a == b || a == c || b == c) {
+                continue;
+            }
+            PokerInfo info = new PokerInfo();
+            info.pHandVal = ThreeCardLogic.getHandDescription(PackedCards.hand(a, b, c));
+            
+            assertEquals(info.pHandVal, roundTrip(info).pHandVal);
+        }
+    }
+    
+    private ByteBuffer deltaFrame(PokerInfo info, PokerCodec.Delta sent) {
+        ByteBuffer frame = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+        PokerCodec.writeDeltaFrame(info, sent, frame);
+        frame.flip();
+        assertEquals(frame.remaining() - 2, frame.getShort(), "Length prefix should cover the body");
+        return frame;
+    }
+    
+    @Test
+    void deltaFramesRebuildEachMessage() throws Exception {
+        PokerCodec.Delta sent = new PokerCodec.Delta();
+        PokerCodec.Delta received = new PokerCodec.Delta();
+        
+        PokerInfo info = new PokerInfo(10, 5, 185);
+        info.buttonPressed = 1;
+        info.card1 = "AS";
+        info.card2 = "KD";
+        info.card3 = "10C";
+        info.pHandVal = "Ace High";
+        PokerInfo first = PokerCodec.readDeltaBody(deltaFrame(info, sent), received);
+        assertEquals(10, first.ante);
+        assertEquals(185, first.cash);
+        assertEquals("10C", first.card3);
+        assertEquals("Ace High", first.pHandVal);
+        assertEquals("", first.dCard1);
+        
+        info.buttonPressed = 3;
+        info.dCard1 = "2H";
+        info.dCard2 = "3H";
+        info.dCard3 = "4H";
+        info.dHandVal = "Straight Flush";
+        PokerInfo second = PokerCodec.readDeltaBody(deltaFrame(info, sent), received);
+        assertEquals(3, second.buttonPressed);
+        assertEquals(10, second.ante, "Unchanged fields come from the previous message");
+        assertEquals("AS", second.card1);
+        assertEquals("4H", second.dCard3);
+        assertEquals("Straight Flush", second.dHandVal);
+    }
+    
+    @Test
+    void deltaFrameCarriesOnlyChangedFields() {
+        PokerCodec.Delta sent = new PokerCodec.Delta();
+        PokerInfo info = new PokerInfo();
+        
+        ByteBuffer unchanged = deltaFrame(info, sent);
+        assertEquals(0, unchanged.getShort(), "Nothing differs from a default PokerInfo");
+        assertFalse(unchanged.hasRemaining());
+        
+        info.cash = 150;
+        ByteBuffer cashOnly = deltaFrame(info, sent);
+        assertEquals(1 << 6, cashOnly.getShort());
+        assertEquals(150, cashOnly.getInt());
+        assertFalse(cashOnly.hasRemaining());
+    }
+    
+    @Test
+    void truncatedDeltaFrameIsRejected() {
+        ByteBuffer frame = ByteBuffer.allocate(4).putShort((short) (1 << 3)).put((byte) 1).flip();
+        
+        assertThrows(java.io.StreamCorruptedException.class,
+                () -> PokerCodec.readDeltaBody(frame, new PokerCodec.Delta()));
+    }
+    
+    @Test
+    void requestIdFollowsBothKindsOfFrame() throws Exception {
+        PokerInfo info = new PokerInfo(5, 0, 200);
+        info.requestId = 42;
+        assertEquals(42, roundTrip(info).requestId);
+        
+        PokerCodec.Delta sent = new PokerCodec.Delta();
+        PokerCodec.Delta received = new PokerCodec.Delta();
+        assertEquals(42, PokerCodec.readDeltaBody(deltaFrame(info, sent), received).requestId);
+        info.requestId = 43;
+        assertEquals(43, PokerCodec.readDeltaBody(deltaFrame(info, sent), received).requestId);
+    }
+    
+    @Test
+    void identifyCarriesThePlayerId() throws Exception {
+        PokerInfo info = new PokerInfo();
+        info.buttonPressed = PokerCodec.IDENTIFY;
+        info.playerId = 0x8123456789ABCDEFL;
+        assertEquals(0x8123456789ABCDEFL, roundTrip(info).playerId);
+        
+        PokerCodec.Delta sent = new PokerCodec.Delta();
+        PokerCodec.Delta received = new PokerCodec.Delta();
+        PokerInfo merged = PokerCodec.readDeltaBody(deltaFrame(info, sent), received);
+        assertEquals(PokerCodec.IDENTIFY, merged.buttonPressed);
+        assertEquals(0x8123456789ABCDEFL, merged.playerId);
+    }
+    
+    @Test
+    void framesWithoutRequestIdCostNothingExtra() throws Exception {
+        PokerInfo info = new PokerInfo();
+        ByteBuffer frame = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+        PokerCodec.writeFrame(info, frame);
+        
+        assertEquals(2 + PokerCodec.BODY_SIZE, frame.position());
+        assertEquals(0, roundTrip(info).requestId);
+    }
+}
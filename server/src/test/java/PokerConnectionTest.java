@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class PokerConnectionTest {
+
+    // Behaves like a server from before the binary protocol: serialization only
+    private Thread oldServer(ServerSocket listener) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = listener.accept();
+                    ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+                    out.writeObject(new PokerInfo(0, 0, 123));
+                    out.reset();
+                    try {
+                        ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                        PokerInfo data = (PokerInfo) in.readObject();
+                        out.writeObject(data);
+                        out.reset();
+                    } catch (Exception e) {
+                        socket.close();
+                    }
+                }
+            } catch (Exception e) {
+                // Listener closed
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void binaryClientFallsBackToSerializationForOldServer() throws Exception {
+        try (ServerSocket listener = new ServerSocket(0)) {
+            oldServer(listener);
+
+            try (PokerConnection connection = PokerConnection.connect("127.0.0.1", listener.getLocalPort(),
+                    PokerConnection.Mode.BINARY)) {
+                assertEquals(PokerConnection.Mode.SERIALIZED, connection.getMode());
+                assertEquals(123, connection.read().cash);
+
+                connection.write(new PokerInfo(7, 0, 50));
+                assertEquals(7, connection.read().ante);
+            }
+        }
+    }
+
+    // Behaves like a server that knows full binary frames but not delta frames
+    private Thread binaryOnlyServer(ServerSocket listener) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    try (Socket socket = listener.accept()) {
+                        byte[] hello = new byte[PokerCodec.HELLO.length];
+                        new DataInputStream(socket.getInputStream()).readFully(hello);
+                        if (Arrays.equals(hello, PokerCodec.HELLO)) {
+                            ByteBuffer frame = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+                            frame.put(PokerCodec.HELLO);
+                            PokerCodec.writeFrame(new PokerInfo(0, 0, 321), frame);
+                            socket.getOutputStream().write(frame.array(), 0, frame.position());
+                            socket.getInputStream().read(); // wait for the client to hang up
+                        }
+                    } catch (Exception e) {
+                        // Next client
+                    }
+                }
+            } catch (Exception e) {
+                // Listener closed
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void deltaClientFallsBackToBinaryForServerWithoutDeltaFrames() throws Exception {
+        try (ServerSocket listener = new ServerSocket(0)) {
+            binaryOnlyServer(listener);
+
+            try (PokerConnection connection = PokerConnection.connect("127.0.0.1", listener.getLocalPort(),
+                    PokerConnection.Mode.DELTA)) {
+                assertEquals(PokerConnection.Mode.BINARY, connection.getMode());
+                assertEquals(321, connection.read().cash);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+// Compares the serialized wire path before and after PokerInfo became
+// Externalizable: default serialization with a reset after every message
+// against hand-written fields sent unshared with periodic resets.
+// Not part of the test run; after mvn test-compile run it with
+//   java -cp target/classes:target/test-classes PokerInfoSerializationBenchmark
+public class PokerInfoSerializationBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int MESSAGES = 1_000_000;
+
+    // Field for field copy of PokerInfo as it was before, default serialization
+    static class LegacyPokerInfo implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        int ante = 5;
+        int pairPlus = 5;
+        int cash = 185;
+        int play = 5;
+        int winningsThisRound = 10;
+        boolean hang;
+        boolean playOver = true;
+        boolean playerWon = true;
+        boolean newRound;
+        int buttonPressed = 2;
+        String card1 = "AS";
+        String card2 = "KD";
+        String card3 = "10C";
+        String dCard1 = "2H";
+        String dCard2 = "7C";
+        String dCard3 = "9S";
+        int winner = 1;
+        String pHandVal = "Ace High";
+        String dHandVal = "9 High";
+    }
+
+    interface Writer {
+        void write(ObjectOutputStream out, int i) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LegacyPokerInfo legacy = new LegacyPokerInfo();
+        PokerInfo current = new PokerInfo(5, 5, 185);
+        current.play = 5;
+        current.winningsThisRound = 10;
+        current.hang = false;
+        current.playOver = true;
+        current.playerWon = true;
+        current.newRound = false;
+        current.buttonPressed = 2;
+        current.card1 = "AS";
+        current.card2 = "KD";
+        current.card3 = "10C";
+        current.dCard1 = "2H";
+        current.dCard2 = "7C";
+        current.dCard3 = "9S";
+        current.winner = 1;
+        current.pHandVal = "Ace High";
+        current.dHandVal = "9 High";
+
+        Writer before = (out, i) -> {
+            out.writeObject(legacy);
+            out.reset();
+        };
+        Writer after = (out, i) -> {
+            out.writeUnshared(current);
+            if ((i + 1) % PokerConnection.RESET_INTERVAL == 0) {
+                out.reset();
+            }
+        };
+
+        run("before", before, WARMUP, false);
+        run("after", after, WARMUP, false);
+        run("before", before, MESSAGES, true);
+        run("after", after, MESSAGES, true);
+    }
+
+    private static void run(String name, Writer writer, int messages, boolean print) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        long encodeStart = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            writer.write(out, i);
+        }
+        out.flush();
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        long decodeStart = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            in.readUnshared();
+        }
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        if (print) {
+            System.out.printf("%-6s %6.1f bytes/msg  encode %6.0f ns/msg  decode %6.0f ns/msg%n",
+                    name, (double) bytes.size() / messages,
+                    (double) encodeNanos / messages, (double) decodeNanos / messages);
+        }
+    }
+}
@@ -2,6 +2,11 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class PokerInfoTest {
 
     private PokerInfo info;
@@ -100,4 +105,56 @@ public class PokerInfoTest {
 
 
 
+
+    @Test
+    void externalizedCopyKeepsEveryField() throws Exception {
+        PokerInfo sent = new PokerInfo(5, 10, 185);
+        sent.play = 5;
+        sent.winningsThisRound = -20;
+        sent.hang = false;
+        sent.playOver = true;
+        sent.playerWon = true;
+        sent.newRound = false;
+        sent.buttonPressed = 2;
+        sent.card1 = "AS";
+        sent.card2 = "KD";
+        sent.card3 = "10C";
+        sent.dCard1 = "2H";
+        sent.dCard2 = "3H";
+        sent.dCard3 = "4H";
+        sent.winner = 2;
+        sent.pHandVal = "Ace High";
+        sent.dHandVal = null;
+        sent.requestId = 9;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeUnshared(sent);
+        }
+        PokerInfo copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (PokerInfo) in.readUnshared();
+        }
+
+        assertEquals(5, copy.ante);
+        assertEquals(10, copy.pairPlus);
+        assertEquals(185, copy.cash);
+        assertEquals(5, copy.play);
+        assertEquals(-20, copy.winningsThisRound);
+        assertFalse(copy.hang);
+        assertTrue(copy.playOver);
+        assertTrue(copy.playerWon);
+        assertFalse(copy.newRound);
+        assertEquals(2, copy.buttonPressed);
+        assertEquals("AS", copy.card1);
+        assertEquals("KD", copy.card2);
+        assertEquals("10C", copy.card3);
+        assertEquals("2H", copy.dCard1);
+        assertEquals("3H", copy.dCard2);
+        assertEquals("4H", copy.dCard3);
+        assertEquals(2, copy.winner);
+        assertEquals("Ace High", copy.pHandVal);
+        assertEquals("", copy.dHandVal, "null strings travel as empty");
+        assertEquals(9, copy.requestId);
+    }
 }
@@ -0,0 +1,672 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+public class ServerTest {
+    
+    private int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    // Retries until the server's listener is up
+    private PokerConnection connect(int port, PokerConnection.Mode mode) throws Exception {
+        for (int tries = 0; ; tries++) {
+            try {
+                return PokerConnection.connect("127.0.0.1", port, mode);
+            } catch (ConnectException e) {
+                if (tries > 100) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+    
+    @Test
+    void threadedEngineServesAFullRound() throws Exception {
+        playRound(ServerConfig.Engine.THREADED, PokerConnection.Mode.SERIALIZED);
+        playRound(ServerConfig.Engine.THREADED, PokerConnection.Mode.BINARY);
+        playRound(ServerConfig.Engine.THREADED, PokerConnection.Mode.DELTA);
+    }
+    
+    @Test
+    void virtualThreadEngineServesAFullRound() throws Exception {
+        playRound(ServerConfig.Engine.VIRTUAL, PokerConnection.Mode.SERIALIZED);
+        playRound(ServerConfig.Engine.VIRTUAL, PokerConnection.Mode.BINARY);
+        playRound(ServerConfig.Engine.VIRTUAL, PokerConnection.Mode.DELTA);
+    }
+    
+    @Test
+    void nioEngineServesAFullRound() throws Exception {
+        playRound(ServerConfig.Engine.NIO, PokerConnection.Mode.SERIALIZED);
+        playRound(ServerConfig.Engine.NIO, PokerConnection.Mode.BINARY);
+        playRound(ServerConfig.Engine.NIO, PokerConnection.Mode.DELTA);
+    }
+    
+    private void playRound(ServerConfig.Engine engine, PokerConnection.Mode mode) throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.engine = engine;
+        server.config.nioLoops = 2;
+        server.startServer();
+        
+        try (PokerConnection connection = connect(port, mode)) {
+            assertEquals(mode, connection.getMode());
+            
+            PokerInfo welcome = connection.read();
+            assertEquals(0, welcome.buttonPressed);
+            assertEquals(200, welcome.cash);
+            
+            PokerInfo deal = new PokerInfo(10, 5, 200);
+            deal.buttonPressed = 1;
+            connection.write(deal);
+            
+            PokerInfo dealt = connection.read();
+            assertEquals(185, dealt.cash);
+            assertFalse(dealt.card1.isEmpty(), "Player cards should be dealt");
+            assertFalse(dealt.pHandVal.isEmpty(), "Player hand should be described");
+            assertEquals("", dealt.dCard1, "Dealer cards stay hidden until play or fold");
+            assertEquals("", dealt.dHandVal);
+            
+            dealt.buttonPressed = 3;
+            connection.write(dealt);
+            
+            PokerInfo folded = connection.read();
+            assertEquals(185, folded.cash);
+            assertFalse(folded.dCard3.isEmpty(), "Dealer cards are revealed on fold");
+            assertFalse(folded.dHandVal.isEmpty());
+            assertEquals(dealt.card1, folded.card1);
+            assertEquals(1, server.getClientCount());
+        } finally {
+            server.stopServer();
+        }
+    }
+    
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            pipelineRounds(engine);
+        }
+    }
+    
+    // Sends a fresh start and several deal/fold rounds without waiting, then reads every answer
+    private void pipelineRounds(ServerConfig.Engine engine) throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.engine = engine;
+        server.config.nioLoops = 1;
+        server.startServer();
+        
+        try (PokerConnection connection = connect(port, PokerConnection.Mode.DELTA)) {
+            assertEquals(0, connection.read().requestId, "Welcome answers no request");
+            
+            PokerInfo fresh = new PokerInfo();
+            fresh.buttonPressed = 4;
+            fresh.requestId = 1;
+            connection.write(fresh);
+            
+            int rounds = 5;
+            for (int round = 0; round < rounds; round++) {
+                PokerInfo deal = new PokerInfo(5, 0, 200 - round * 5);
+                deal.buttonPressed = 1;
+                deal.requestId = 2 + round * 2;
+                connection.write(deal);
+                
+                PokerInfo fold = new PokerInfo(5, 0, 195 - round * 5);
+                fold.buttonPressed = 3;
+                fold.requestId = 3 + round * 2;
+                connection.write(fold);
+            }
+            
+            assertEquals(200, connection.read().cash);
+            for (int id = 2; id < 2 + rounds * 2; id++) {
+                PokerInfo response = connection.read();
+                assertEquals(id, response.requestId, engine + " should answer in request order");
+            }
+        } finally {
+            server.stopServer();
+        }
+    }
+    
+    @Test
+    void autoPlayStreamsDetailBeforeTheSummary() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            for (PokerConnection.Mode mode : PokerConnection.Mode.values()) {
+                autoPlay(engine, mode);
+            }
+        }
+    }
+    
+    private void autoPlay(ServerConfig.Engine engine, PokerConnection.Mode mode) throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.engine = engine;
+        server.config.nioLoops = 1;
+        server.startServer();
+        
+        try (PokerConnection connection = connect(port, mode)) {
+            connection.read(); // welcome
+            
+            PokerInfo request = new PokerInfo(5, 5, 100_000);
+            request.buttonPressed = 5;
+            request.requestId = 11;
+            request.rounds = 600;
+            request.strategy = AutoPlay.Strategy.QUEEN_SIX_FOUR.ordinal();
+            request.detail = true;
+            connection.write(request);
+            
+            int hands = 0;
+            int net = 0;
+            PokerInfo message;
+            while ((message = connection.read()).buttonPressed == 6) {
+                assertEquals(11, message.requestId);
+                for (long record : message.hands) {
+                    net += AutoPlay.net(record);
+                }
+                hands += message.hands.length;
+            }
+            
+            assertEquals(5, message.buttonPressed, engine + " " + mode);
+            assertEquals(11, message.requestId);
+            assertEquals(600, message.rounds);
+            assertEquals(600, hands);
+            assertEquals(net, message.winningsThisRound);
+            assertEquals(100_000 + net, message.cash);
+        } finally {
+            server.stopServer();
+        }
+    }
+    
+    // A raw socket so the receive buffer can be kept small from the start
+    private Socket rawConnect(int port) throws Exception {
+        for (int tries = 0; ; tries++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(4096);
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", port));
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (tries > 100) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+    
+    @Test
+    void clientsThatStopReadingAreDropped() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            int port = freePort();
+            Server server = new Server(message -> { }, String.valueOf(port));
+            server.config.engine = engine;
+            server.config.nioLoops = 1;
+            server.config.writeHighWatermark = 8 * 1024;
+            server.config.writeLowWatermark = 1024;
+            server.config.writeStallMillis = 200;
+            server.startServer();
+            
+            try (Socket socket = rawConnect(port)) {
+                
+                // Ask for far more detail than the socket buffers hold, then never read it
+                ByteBuffer out = ByteBuffer.allocate(PokerCodec.MAX_FRAME * 10);
+                out.put(PokerCodec.HELLO);
+                for (int i = 0; i < 10; i++) {
+                    PokerInfo request = new PokerInfo(5, 0, 10_000_000);
+                    request.buttonPressed = 5;
+                    request.rounds = AutoPlay.MAX_ROUNDS;
+                    request.detail = true;
+                    PokerCodec.writeFrame(request, out);
+                }
+                socket.getOutputStream().write(out.array(), 0, out.position());
+                
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (server.getClientCount() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(0, server.getClientCount(), engine + " should drop the stalled client");
+            } finally {
+                server.stopServer();
+            }
+        }
+    }
+    
+    @Test
+    void autoPlayWaitsForAClientBehindOnReadingWithoutHoldingUpOthers() throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.engine = ServerConfig.Engine.NIO;
+        server.config.nioLoops = 1;
+        server.config.writeHighWatermark = 8 * 1024;
+        server.config.writeLowWatermark = 1024;
+        server.config.writeStallMillis = 30_000;
+        server.startServer();
+        
+        try (Socket slow = rawConnect(port)) {
+            ByteBuffer out = ByteBuffer.allocate(PokerCodec.MAX_FRAME);
+            out.put(PokerCodec.HELLO);
+            PokerInfo request = new PokerInfo(5, 0, 10_000_000);
+            request.buttonPressed = 5;
+            request.requestId = 3;
+            request.rounds = AutoPlay.MAX_ROUNDS;
+            request.detail = true;
+            PokerCodec.writeFrame(request, out);
+            PokerInfo heartbeat = new PokerInfo();
+            heartbeat.buttonPressed = 7;
+            heartbeat.requestId = 4;
+            PokerCodec.writeFrame(heartbeat, out);
+            slow.getOutputStream().write(out.array(), 0, out.position());
+            
+            // The run is stuck behind the unread detail, the same loop still serves others
+            try (PokerConnection other = connect(port, PokerConnection.Mode.DELTA)) {
+                other.read();
+                PokerInfo ping = new PokerInfo();
+                ping.buttonPressed = 7;
+                other.write(ping);
+                assertEquals(7, other.read().buttonPressed);
+            }
+            
+            java.io.DataInputStream in = new java.io.DataInputStream(slow.getInputStream());
+            in.readFully(new byte[PokerCodec.HELLO.length]);
+            byte[] frame = new byte[PokerCodec.MAX_FRAME];
+            int hands = 0;
+            PokerInfo message;
+            do {
+                int length = in.readUnsignedShort();
+                in.readFully(frame, 0, length);
+                message = PokerCodec.readBody(ByteBuffer.wrap(frame, 0, length));
+                if (message.buttonPressed == 6) {
+                    hands += message.hands.length;
+                }
+            } while (message.buttonPressed != 5);
+            assertEquals(AutoPlay.MAX_ROUNDS, hands);
+            assertEquals(AutoPlay.MAX_ROUNDS, message.rounds);
+            assertEquals(3, message.requestId);
+            
+            // The heartbeat read behind the run is answered after it
+            int length = in.readUnsignedShort();
+            in.readFully(frame, 0, length);
+            assertEquals(4, PokerCodec.readBody(ByteBuffer.wrap(frame, 0, length)).requestId);
+        } finally {
+            server.stopServer();
+        }
+    }
+    
+    @Test
+    void aFailedHandshakeRemovesTheSession() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            int port = freePort();
+            Server server = new Server(message -> { }, String.valueOf(port));
+            server.config.engine = engine;
+            server.config.nioLoops = 1;
+            server.startServer();
+            
+            try (Socket socket = rawConnect(port)) {
+                socket.getOutputStream().write("GET / HTTP/1.1\r\n\r\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+                socket.getOutputStream().flush();
+                assertEquals(-1, socket.getInputStream().read(), engine + " should close the connection");
+                
+                long deadline = System.currentTimeMillis() + 5000;
+                while (server.getClientCount() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(0, server.getClientCount(), engine + " should remove the session");
+            } finally {
+                server.stopServer();
+            }
+        }
+    }
+    
+    @Test
+    void pipelinedFramesLargerThanOneReadAreAllAnswered() throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.engine = ServerConfig.Engine.NIO;
+        server.config.nioLoops = 1;
+        server.startServer();
+        
+        try (Socket socket = rawConnect(port)) {
+            
+            // Many heartbeats in one write, several times what one read takes in
+            int heartbeats = 2000;
+            ByteBuffer out = ByteBuffer.allocate(PokerCodec.HELLO.length + heartbeats * PokerCodec.MAX_FRAME);
+            out.put(PokerCodec.HELLO);
+            for (int i = 0; i < heartbeats; i++) {
+                PokerInfo ping = new PokerInfo();
+                ping.buttonPressed = 7;
+                ping.requestId = i;
+                PokerCodec.writeFrame(ping, out);
+            }
+            assertTrue(out.position() > 8 * 8192);
+            Thread writer = new Thread(() -> {
+                try {
+                    socket.getOutputStream().write(out.array(), 0, out.position());
+                } catch (java.io.IOException e) {
+                    // The reads below fail too
+                }
+            });
+            writer.start();
+            
+            java.io.DataInputStream in = new java.io.DataInputStream(socket.getInputStream());
+            in.readFully(new byte[PokerCodec.HELLO.length]);
+            byte[] frame = new byte[PokerCodec.MAX_FRAME];
+            for (int i = -1; i < heartbeats; i++) {
+                int length = in.readUnsignedShort();
+                in.readFully(frame, 0, length);
+                PokerInfo answer = PokerCodec.readBody(ByteBuffer.wrap(frame, 0, length));
+                if (i >= 0) {
+                    assertEquals(7, answer.buttonPressed);
+                    assertEquals(i, answer.requestId);
+                }
+            }
+            writer.join();
+            assertEquals(1, server.getClientCount());
+        } finally {
+            server.stopServer();
+        }
+    }
+    
+    @Test
+    void idleClientsAreClosedWhileHeartbeatsKeepOthersOpen() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            int port = freePort();
+            Server server = new Server(message -> { }, String.valueOf(port));
+            server.config.engine = engine;
+            server.config.nioLoops = 1;
+            server.config.idleTimeoutMillis = 300;
+            server.config.reaperTickMillis = 20;
+            server.startServer();
+            
+            try (PokerConnection silent = connect(port, PokerConnection.Mode.DELTA);
+                 PokerConnection beating = connect(port, PokerConnection.Mode.DELTA)) {
+                silent.read();
+                beating.read();
+                
+                for (int i = 0; i < 10; i++) {
+                    PokerInfo ping = new PokerInfo();
+                    ping.buttonPressed = 7;
+                    beating.write(ping);
+                    assertEquals(7, beating.read().buttonPressed, engine + " should echo heartbeats");
+                    Thread.sleep(100);
+                }
+                assertEquals(1, server.getClientCount(), engine + " should only close the silent client");
+                assertThrows(java.io.IOException.class, silent::read);
+            } finally {
+                server.stopServer();
+            }
+        }
+    }
+    
+    @Test
+    void listenersHearLogMessagesAndClientCounts() throws Exception {
+        int port = freePort();
+        Server server = new Server(new ServerConfig(), port);
+        java.util.List<String> messages = new java.util.concurrent.CopyOnWriteArrayList<>();
+        java.util.List<Integer> counts = new java.util.concurrent.CopyOnWriteArrayList<>();
+        server.addListener(new ServerListener() {
+            @Override
+            public void logMessage(String message) {
+                messages.add(message);
+            }
+            
+            @Override
+            public void clientCountChanged(int clients) {
+                counts.add(clients);
+            }
+        });
+        server.startServer();
+        
+        try (PokerConnection connection = connect(port, PokerConnection.Mode.DELTA)) {
+            connection.read();
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (counts.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        server.stopServer();
+        
+        assertEquals(java.util.List.of(1, 0), counts);
+        assertTrue(messages.contains("Client 1 has connected to server"));
+        assertEquals("Server stopped", messages.get(messages.size() - 1));
+    }
+    
+    @Test
+    void severalAcceptorsShareThePort() throws Exception {
+        for (ServerConfig.Engine engine : ServerConfig.Engine.values()) {
+            int port = freePort();
+            Server server = new Server(message -> { }, String.valueOf(port));
+            server.config.engine = engine;
+            server.config.nioLoops = 2;
+            server.config.acceptors = 4;
+            server.startServer();
+            
+            java.util.List<PokerConnection> connections = new java.util.ArrayList<>();
+            try {
+                for (int i = 0; i < 40; i++) {
+                    PokerConnection connection = connect(port, PokerConnection.Mode.DELTA);
+                    connections.add(connection);
+                    assertEquals(0, connection.read().buttonPressed);
+                }
+                assertEquals(40, server.getClientCount(), engine + " should register every connection");
+            } finally {
+                for (PokerConnection connection : connections) {
+                    connection.close();
+                }
+                server.stopServer();
+            }
+        }
+    }
+    
+    @Test
+    void identifiedPlayersKeepTheirCashAcrossConnections(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        int port = freePort();
+        Server server = new Server(message -> { }, String.valueOf(port));
+        server.config.walletDir = dir.toString();
+        server.startServer();
+        
+        int cash;
+        try {
+            try (PokerConnection connection = connect(port, PokerConnection.Mode.DELTA)) {
+                connection.read(); // welcome
+                PokerInfo identified = identify(connection, 77);
+                assertEquals(0, identified.buttonPressed);
+                assertEquals(200, identified.cash);
+                
+                PokerInfo deal = new PokerInfo(10, 0, 5000); // The wallet, not the client, says how much cash there is
+                deal.buttonPressed = 1;
+                connection.write(deal);
+                PokerInfo dealt = connection.read();
+                assertEquals(190, dealt.cash);
+                
+                dealt.buttonPressed = 2;
+                connection.write(dealt);
+                cash = connection.read().cash;
+            }
+            
+            try (PokerConnection connection = connect(port, PokerConnection.Mode.BINARY)) {
+                connection.read();
+                assertEquals(cash, identify(connection, 77).cash, "A reconnecting player gets their cash back");
+                assertEquals(200, identify(connection, 78).cash, "Another player starts fresh");
+            }
+        } finally {
+            server.stopServer();
+        }
+        assertEquals(Integer.valueOf(cash), WalletStore.load(dir).get(77L), "Stopping the server saves every wallet");
+    }
+    
+    @Test
+    void aRoundInProgressWhenTheServerStopsIsVoidedOnRestart(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        int port = freePort();
+        ServerConfig config = new ServerConfig();
+        config.journalDir = dir.resolve("journal").toString();
+        config.walletDir = dir.resolve("wallets").toString();
+        
+        Server server = new Server(config, port);
+        server.startServer();
+        try (PokerConnection connection = connect(port, PokerConnection.Mode.DELTA)) {
+            connection.read();
+            identify(connection, 5);
+            PokerInfo deal = new PokerInfo(10, 5, 200);
+            deal.buttonPressed = 1;
+            connection.write(deal);
+            assertEquals(185, connection.read().cash);
+        } finally {
+            server.stopServer();
+        }
+        
+        // The wallet alone would say 185, the journal knows the round never finished
+        java.nio.file.Files.delete(dir.resolve("wallets").resolve("wallets.log"));
+        java.util.List<String> messages = new java.util.concurrent.CopyOnWriteArrayList<>();
+        server = new Server(config, port);
+        server.addListener(messages::add);
+        server.startServer();
+        try (PokerConnection connection = connect(port, PokerConnection.Mode.DELTA)) {
+            connection.read();
+            assertEquals(200, identify(connection, 5).cash, "The wagers of the voided round are returned");
+        } finally {
+            server.stopServer();
+        }
+        assertTrue(messages.stream().anyMatch(m -> m.startsWith("Recovered 1 players") && m.endsWith("1 rounds in progress voided")),
+                messages.toString());
+        
+        JournalRecovery.Result result = JournalRecovery.recover(dir.resolve("journal"), 1);
+        assertEquals(200, result.players.get(5L).cash);
+        assertFalse(result.players.get(5L).inRound);
+    }
+    
+    @Test
+    void onlyADealtRoundCanBePlayedOrFolded(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        Server server = new Server(message -> { }, "0");
+        try (WalletStore wallets = new WalletStore(dir)) {
+            server.wallets = wallets;
+            GameSession session = new GameSession(server, 1, () -> { }, new Dealer());
+            
+            PokerInfo early = new PokerInfo(10, 0, 200);
+            early.buttonPressed = 2;
+            session.process(early);
+            assertEquals(200, early.cash, "Nothing to play before a deal");
+            assertEquals("", early.dCard1);
+            
+            PokerInfo identify = new PokerInfo();
+            identify.buttonPressed = 8;
+            identify.playerId = 9;
+            session.process(identify);
+            assertEquals(200, identify.cash);
+            
+            PokerInfo deal = new PokerInfo(10, 0, 5000);
+            deal.buttonPressed = 1;
+            session.process(deal);
+            assertEquals(190, deal.cash);
+            
+            PokerInfo again = new PokerInfo();
+            again.buttonPressed = 8;
+            again.playerId = 10;
+            session.process(again);
+            assertEquals(9, session.playerId, "A round in progress keeps its wallet");
+            
+            PokerInfo play = new PokerInfo(10, 0, 190);
+            play.buttonPressed = 2;
+            session.process(play);
+            int settled = play.cash;
+            assertEquals(settled, wallets.balance(9));
+            
+            for (int button = 2; button <= 3; button++) {
+                PokerInfo replay = new PokerInfo(10, 0, settled);
+                replay.buttonPressed = button;
+                session.process(replay);
+                assertEquals(settled, replay.cash, "A settled round pays nothing more");
+            }
+            assertEquals(settled, wallets.balance(9));
+        }
+    }
+    
+    @Test
+    void dealingBeforeIdentifyingCannotBePaidIntoTheWallet(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        Server server = new Server(message -> { }, "0");
+        try (WalletStore wallets = new WalletStore(dir)) {
+            server.wallets = wallets;
+            GameSession session = new GameSession(server, 1, () -> { }, new Dealer());
+            
+            PokerInfo deal = new PokerInfo(25, 25, 5000);
+            deal.buttonPressed = 1;
+            session.process(deal);
+            
+            PokerInfo identify = new PokerInfo();
+            identify.buttonPressed = 8;
+            identify.playerId = 9;
+            session.process(identify);
+            assertEquals(0, session.playerId);
+            assertEquals(-1, wallets.balance(9), "No wallet is opened during a round");
+            
+            PokerInfo fold = new PokerInfo(25, 25, 4950);
+            fold.buttonPressed = 3;
+            session.process(fold);
+            identify = new PokerInfo();
+            identify.buttonPressed = 8;
+            identify.playerId = 9;
+            session.process(identify);
+            assertEquals(9, session.playerId);
+            assertEquals(200, identify.cash);
+        }
+    }
+    
+    @Test
+    void freshStartOnlyRefillsAWalletThatCannotCoverTheMinimumBet(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir) throws Exception {
+        Server server = new Server(message -> { }, "0");
+        try (WalletStore wallets = new WalletStore(dir.resolve("wallets"));
+             HandJournal journal = new HandJournal(dir.resolve("journal"), 1024, 1000)) {
+            server.wallets = wallets;
+            server.journal = journal;
+            wallets.set(9, 5000);
+            GameSession session = new GameSession(server, 1, () -> { }, new Dealer());
+            PokerInfo identify = new PokerInfo();
+            identify.buttonPressed = 8;
+            identify.playerId = 9;
+            session.process(identify);
+            
+            PokerInfo fresh = new PokerInfo();
+            fresh.buttonPressed = 4;
+            session.process(fresh);
+            assertEquals(5000, fresh.cash, "A funded wallet keeps its cash");
+            assertEquals(5000, wallets.balance(9));
+            
+            wallets.set(9, 3);
+            fresh = new PokerInfo();
+            fresh.buttonPressed = 4;
+            session.process(fresh);
+            assertEquals(GameSession.STARTING_CASH, fresh.cash);
+            assertEquals(GameSession.STARTING_CASH, wallets.balance(9));
+            
+            wallets.set(9, 150);
+            fresh = new PokerInfo();
+            fresh.buttonPressed = 4;
+            session.process(fresh);
+            assertEquals(150, wallets.balance(9), "A wallet that covers the minimum bet is left alone");
+        }
+        
+        java.util.List<HandJournal.Entry> entries = new java.util.ArrayList<>();
+        HandJournal.readAll(dir.resolve("journal"), entries::add);
+        assertEquals(4, entries.size());
+        HandJournal.Entry refilled = entries.get(1);
+        assertEquals(HandJournal.REFILLED, refilled.type);
+        assertEquals(197, refilled.net);
+        assertEquals(GameSession.STARTING_CASH, refilled.cash);
+        assertEquals(9, refilled.player);
+    }
+    
+    private PokerInfo identify(PokerConnection connection, long playerId) throws Exception {
+        PokerInfo identify = new PokerInfo();
+        identify.buttonPressed = 8;
+        identify.playerId = playerId;
+        connection.write(identify);
+        return connection.read();
+    }
+}
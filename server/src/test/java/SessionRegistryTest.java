@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class SessionRegistryTest {
+
+    private final Server server = new Server(message -> { }, "0");
+
+    private GameSession session(int id) {
+        return new GameSession(server, id, () -> { }, new Dealer());
+    }
+
+    @Test
+    void addsAndRemovesById() {
+        SessionRegistry registry = new SessionRegistry();
+        GameSession first = session(1);
+        GameSession second = session(2);
+        registry.add(first);
+        registry.add(second);
+
+        assertEquals(2, registry.size());
+        assertSame(second, registry.get(2));
+        assertTrue(registry.remove(first));
+        assertFalse(registry.remove(first), "removing twice only counts once");
+        assertNull(registry.get(1));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void aStaleSessionDoesNotRemoveItsReplacement() {
+        SessionRegistry registry = new SessionRegistry();
+        GameSession old = session(1);
+        GameSession replacement = session(1); // IDs restart when the server is restarted
+        registry.add(old);
+        assertEquals(List.of(old), registry.removeAll());
+        registry.add(replacement);
+
+        assertFalse(registry.remove(old));
+        assertSame(replacement, registry.get(1));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void snapshotsAreUnaffectedByLaterChanges() {
+        SessionRegistry registry = new SessionRegistry();
+        GameSession first = session(1);
+        registry.add(first);
+        List<GameSession> snapshot = registry.snapshot();
+        registry.remove(first);
+        registry.add(session(2));
+
+        assertEquals(List.of(first), snapshot);
+    }
+
+    @Test
+    void countStaysExactUnderConcurrentConnectsAndDisconnects() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        int threads = 8;
+        int perThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    GameSession session = session(base + i);
+                    registry.add(session);
+                    if (i % 2 == 0) {
+                        registry.remove(session);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, registry.size());
+        assertEquals(threads * perThread / 2, registry.snapshot().size());
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShoeTest {
+
+    // Runs the background reshuffle on the calling thread
+    private Shoe shoe(int decks, double penetration) {
+        return new Shoe(decks, penetration, ShuffleRandom.threadLocal(), Runnable::run);
+    }
+
+    @Test
+    void shoeHoldsEveryCardOncePerDeck() {
+        Shoe shoe = shoe(6, 1.0);
+        int[] counts = new int[52];
+
+        while (shoe.remaining() > 0) {
+            counts[shoe.deal()]++;
+        }
+
+        for (int code = 0; code < 52; code++) {
+            assertEquals(6, counts[code], "Each card should appear once per deck");
+        }
+    }
+
+    @Test
+    void newRoundKeepsDealingUntilCutCard() {
+        Shoe shoe = shoe(2, 0.5);
+        shoe.newRound();
+        shoe.dealHand();
+        shoe.newRound();
+
+        assertEquals(104 - 3, shoe.remaining(), "Shoe should not reshuffle before the cut card");
+
+        while (!shoe.isPastCutCard()) {
+            shoe.dealHand();
+        }
+        shoe.newRound();
+
+        assertEquals(104, shoe.remaining(), "Shoe should be replaced after the cut card");
+    }
+
+    @Test
+    void invalidShoeSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> shoe(0, 0.75));
+        assertThrows(IllegalArgumentException.class, () -> shoe(6, 0));
+        assertThrows(IllegalArgumentException.class, () -> shoe(6, 1.5));
+    }
+
+    @Test
+    void dealerInShoeModeDealsAcrossRounds() {
+        Shoe shoe = shoe(4, 0.75);
+        Dealer dealer = new Dealer(shoe);
+
+        dealer.newRound();
+        dealer.dealPackedHand();
+        dealer.dealPackedHand();
+        dealer.newRound();
+        dealer.dealPackedHand();
+
+        assertEquals(208 - 9, shoe.remaining());
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShuffleRandomFactoryTest {
+
+    private int[] dealRound(ShuffleRandom random) {
+        PackedDeck deck = new PackedDeck(random);
+        int[] cards = new int[6];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = deck.deal();
+        }
+        return cards;
+    }
+
+    @Test
+    void seededModeReplaysSameDealsForSameSessionOrder() {
+        ShuffleRandomFactory first = new ShuffleRandomFactory(ShuffleRandom.Mode.SEEDED, 42);
+        ShuffleRandomFactory second = new ShuffleRandomFactory(ShuffleRandom.Mode.SEEDED, 42);
+
+        for (int session = 0; session < 3; session++) {
+            assertArrayEquals(dealRound(first.next()), dealRound(second.next()));
+        }
+    }
+
+    @Test
+    void everyModeStaysWithinBound() {
+        for (ShuffleRandom.Mode mode : ShuffleRandom.Mode.values()) {
+            ShuffleRandom random = new ShuffleRandomFactory(mode, 7).next();
+
+            for (int i = 0; i < 1000; i++) {
+                int r = random.nextInt(52);
+                assertTrue(r >= 0 && r < 52, mode + " returned " + r);
+            }
+            assertEquals(mode, new ShuffleRandomFactory(mode, 7).getMode());
+        }
+    }
+
+    @Test
+    void deckShuffledWithSeededRandomStillHasEveryCard() {
+        Deck deck = new Deck(new ShuffleRandomFactory(ShuffleRandom.Mode.SEEDED, 1).next());
+        long seen = 0;
+
+        for (Card c : deck) {
+            seen |= 1L << c.code();
+        }
+
+        assertEquals(52, Long.bitCount(seen));
+    }
+
+    @Test
+    void sessionsCreatedConcurrentlyGetDistinctSequences() throws Exception {
+        ShuffleRandomFactory factory = new ShuffleRandomFactory(ShuffleRandom.Mode.SEEDED, 42);
+        java.util.Set<String> firsts = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ShuffleRandom random = factory.next();
+                    StringBuilder first = new StringBuilder();
+                    for (int j = 0; j < 8; j++) {
+                        first.append(random.nextInt(1 << 30)).append(',');
+                    }
+                    firsts.add(first.toString());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, firsts.size(), "No two sessions should share a sequence");
+    }
+}
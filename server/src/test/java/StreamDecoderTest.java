@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+public class StreamDecoderTest {
+
+    // Writes messages the way the client does: one stream, each object
+    // unshared, reset every RESET_INTERVAL objects
+    private byte[] stream(PokerInfo... messages) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        int sinceReset = 0;
+        for (PokerInfo message : messages) {
+            out.writeUnshared(message);
+            if (++sinceReset == PokerConnection.RESET_INTERVAL) {
+                out.reset();
+                sinceReset = 0;
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void decodesMessagesDeliveredOneByteAtATime() throws Exception {
+        byte[] bytes = stream(new PokerInfo(5, 0, 200), new PokerInfo(10, 5, 150));
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        PokerInfo[] decoded = new PokerInfo[2];
+        int found = 0;
+
+        for (byte b : bytes) {
+            decoder.append(ByteBuffer.wrap(new byte[] {b}));
+            Object message = decoder.poll();
+            if (message != null) {
+                decoded[found++] = (PokerInfo) message;
+            }
+        }
+
+        assertEquals(2, found);
+        assertEquals(5, decoded[0].ante);
+        assertEquals(10, decoded[1].ante);
+        assertEquals(150, decoded[1].cash);
+        assertNull(decoder.poll());
+    }
+
+    @Test
+    void decodesSeveralMessagesFromOneRead() throws Exception {
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        decoder.append(ByteBuffer.wrap(stream(new PokerInfo(5, 0, 1), new PokerInfo(6, 0, 2), new PokerInfo(7, 0, 3))));
+
+        assertEquals(5, ((PokerInfo) decoder.poll()).ante);
+        assertEquals(6, ((PokerInfo) decoder.poll()).ante);
+        assertEquals(7, ((PokerInfo) decoder.poll()).ante);
+        assertNull(decoder.poll());
+    }
+
+    @Test
+    void decodesSameInstanceWrittenAgainAfterChanges() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        PokerInfo info = new PokerInfo(5, 0, 200);
+        out.writeUnshared(info);
+        info.ante = 25;
+        info.card1 = "AS";
+        out.writeUnshared(info);
+        out.flush();
+
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        decoder.append(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(5, ((PokerInfo) decoder.poll()).ante);
+        PokerInfo second = (PokerInfo) decoder.poll();
+        assertEquals(25, second.ante);
+        assertEquals("AS", second.card1);
+    }
+
+    @Test
+    void decodesAcrossPeriodicResets() throws Exception {
+        PokerInfo[] messages = new PokerInfo[PokerConnection.RESET_INTERVAL * 2 + 3];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new PokerInfo(i, 0, 0);
+        }
+        byte[] bytes = stream(messages);
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+
+        // Feed in odd sized chunks so objects and resets straddle reads
+        int found = 0;
+        for (int pos = 0; pos < bytes.length; pos += 37) {
+            decoder.append(ByteBuffer.wrap(bytes, pos, Math.min(37, bytes.length - pos)));
+            Object message;
+            while ((message = decoder.poll()) != null) {
+                assertEquals(found++, ((PokerInfo) message).ante);
+            }
+        }
+
+        assertEquals(messages.length, found);
+    }
+
+    @Test
+    void stillDecodesStreamsResetAfterEveryObject() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (int ante = 1; ante <= 3; ante++) {
+            out.writeObject(new PokerInfo(ante, 0, 0));
+            out.reset();
+        }
+        out.flush();
+
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        decoder.append(ByteBuffer.wrap(bytes.toByteArray()));
+
+        for (int ante = 1; ante <= 3; ante++) {
+            assertEquals(ante, ((PokerInfo) decoder.poll()).ante);
+        }
+        assertNull(decoder.poll());
+    }
+
+    @Test
+    void rejectsObjectsThatAreNotExternalizable() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(new java.util.ArrayList<String>());
+        out.flush();
+
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        decoder.append(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertThrows(StreamCorruptedException.class, decoder::poll);
+    }
+
+    @Test
+    void rejectsStreamWithoutSerializationHeader() throws Exception {
+        StreamDecoder decoder = new StreamDecoder(64 * 1024);
+        decoder.append(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}));
+
+        assertThrows(StreamCorruptedException.class, decoder::poll);
+    }
+
+    @Test
+    void rejectsOversizedMessage() {
+        StreamDecoder decoder = new StreamDecoder(16);
+
+        assertThrows(StreamCorruptedException.class, () -> decoder.append(ByteBuffer.wrap(new byte[32])));
+    }
+}
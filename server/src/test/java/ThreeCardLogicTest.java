@@ -19,9 +19,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsStraightFlush() {
         ArrayList<Card> h = hand(
-                new Card('H', 10),
-                new Card('H', 11),
-                new Card('H', 12)
+                Card.of('H', 10),
+                Card.of('H', 11),
+                Card.of('H', 12)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -31,9 +31,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsThreeOfAKind() {
         ArrayList<Card> h = hand(
-                new Card('H', 10),
-                new Card('C', 10),
-                new Card('D', 10)
+                Card.of('H', 10),
+                Card.of('C', 10),
+                Card.of('D', 10)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -43,9 +43,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsStraight() {
         ArrayList<Card> h = hand(
-                new Card('H', 11),
-                new Card('C', 10),
-                new Card('S', 9)
+                Card.of('H', 11),
+                Card.of('C', 10),
+                Card.of('S', 9)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -55,9 +55,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsStraightSpecialCase() {
         ArrayList<Card> h = hand(
-                new Card('H', 14),
-                new Card('C', 13),
-                new Card('S', 12)
+                Card.of('H', 14),
+                Card.of('C', 13),
+                Card.of('S', 12)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -67,9 +67,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsFlush() {
         ArrayList<Card> h = hand(
-                new Card('H', 9),
-                new Card('H', 2),
-                new Card('H', 4)
+                Card.of('H', 9),
+                Card.of('H', 2),
+                Card.of('H', 4)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -79,9 +79,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsPair() {
         ArrayList<Card> h = hand(
-                new Card('H', 3),
-                new Card('C', 9),
-                new Card('S', 9)
+                Card.of('H', 3),
+                Card.of('C', 9),
+                Card.of('S', 9)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -91,9 +91,9 @@ public class ThreeCardLogicTest {
     @Test
     void evalHandDetectsHighCardWhenNoOtherHand() {
         ArrayList<Card> h = hand(
-                new Card('C', 2),
-                new Card('D', 5),
-                new Card('H', 9)
+                Card.of('C', 2),
+                Card.of('D', 5),
+                Card.of('H', 9)
         );
 
         ThreeCardLogic.Hands result = ThreeCardLogic.evalHand(h);
@@ -107,17 +107,17 @@ public class ThreeCardLogicTest {
         int bet = 5;
 
         int sf = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('H', 10), new Card('H', 11), new Card('H', 12)), bet);
+                hand(Card.of('H', 10), Card.of('H', 11), Card.of('H', 12)), bet);
         int trips = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('C', 7), new Card('D', 7), new Card('H', 7)), bet);
+                hand(Card.of('C', 7), Card.of('D', 7), Card.of('H', 7)), bet);
         int straight = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('C', 4), new Card('D', 5), new Card('H', 6)), bet);
+                hand(Card.of('C', 4), Card.of('D', 5), Card.of('H', 6)), bet);
         int flush = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('S', 2), new Card('S', 8), new Card('S', 14)), bet);
+                hand(Card.of('S', 2), Card.of('S', 8), Card.of('S', 14)), bet);
         int pair = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('C', 9), new Card('D', 9), new Card('H', 4)), bet);
+                hand(Card.of('C', 9), Card.of('D', 9), Card.of('H', 4)), bet);
         int high = ThreeCardLogic.evalPPWinnings(
-                hand(new Card('C', 2), new Card('D', 5), new Card('H', 9)), bet);
+                hand(Card.of('C', 2), Card.of('D', 5), Card.of('H', 9)), bet);
 
         assertEquals(5 * 40, sf);
         assertEquals(5 * 30, trips);
@@ -130,9 +130,9 @@ public class ThreeCardLogicTest {
     @Test
     void dealerQualifiesIfHasQueenHighOrBetter() {
         ArrayList<Card> h = hand(
-                new Card('H', 3),
-                new Card('C', 14),
-                new Card('S', 5)
+                Card.of('H', 3),
+                Card.of('C', 14),
+                Card.of('S', 5)
         );
         assertTrue(ThreeCardLogic.dealerQualifies(h));
     }
@@ -140,9 +140,9 @@ public class ThreeCardLogicTest {
     @Test
     void dealerDoesNotQualifyWhenHighCardBelowQueen() {
         ArrayList<Card> h = hand(
-                new Card('H', 3),
-                new Card('C', 11),
-                new Card('S', 5)
+                Card.of('H', 3),
+                Card.of('C', 11),
+                Card.of('S', 5)
         );
         assertFalse(ThreeCardLogic.dealerQualifies(h));
     }
@@ -152,15 +152,15 @@ public class ThreeCardLogicTest {
     @Test
     void compareHandsPlayerWinsHigherRankedHand() {
         ArrayList<Card> dealer = hand(
-                new Card('H', 2),
-                new Card('D', 5),
-                new Card('C', 9)
+                Card.of('H', 2),
+                Card.of('D', 5),
+                Card.of('C', 9)
         );  // high card only
 
         ArrayList<Card> player = hand(
-                new Card('H', 9),
-                new Card('D', 9),
-                new Card('S', 3)
+                Card.of('H', 9),
+                Card.of('D', 9),
+                Card.of('S', 3)
         );  // pair
 
         int result = ThreeCardLogic.compareHands(dealer, player);
@@ -171,15 +171,15 @@ public class ThreeCardLogicTest {
     @Test
     void compareHandsDealerWinsHigherRankedHand() {
         ArrayList<Card> dealer = hand(
-                new Card('H', 4),
-                new Card('D', 5),
-                new Card('C', 6)
+                Card.of('H', 4),
+                Card.of('D', 5),
+                Card.of('C', 6)
         );  // straight
 
         ArrayList<Card> player = hand(
-                new Card('H', 2),
-                new Card('D', 3),
-                new Card('S', 4)
+                Card.of('H', 2),
+                Card.of('D', 3),
+                Card.of('S', 4)
         );  // lower straight
 
         int result = ThreeCardLogic.compareHands(dealer, player);
@@ -190,15 +190,15 @@ public class ThreeCardLogicTest {
     @Test
     void compareHandsTieWhenSameHandsAndSameHighCards() {
         ArrayList<Card> dealer = hand(
-                new Card('H', 10),
-                new Card('D', 11),
-                new Card('C', 12)
+                Card.of('H', 10),
+                Card.of('D', 11),
+                Card.of('C', 12)
         );
 
         ArrayList<Card> player = hand(
-                new Card('S', 10),
-                new Card('C', 11),
-                new Card('D', 12)
+                Card.of('S', 10),
+                Card.of('C', 11),
+                Card.of('D', 12)
         );
 
         int result = ThreeCardLogic.compareHands(dealer, player);
@@ -209,13 +209,117 @@ public class ThreeCardLogicTest {
     @Test
     void highestCardValReturnsMaxCardValue() {
         ArrayList<Card> h = hand(
-                new Card('H', 6),
-                new Card('D', 2),
-                new Card('C', 14)
+                Card.of('H', 6),
+                Card.of('D', 2),
+                Card.of('C', 14)
         );
 
         int max = ThreeCardLogic.highestCardVal(h);
         assertEquals(14, max, "Ace (14) should be the highest card value");
     }
 
+    @Test
+    void evalHandCategoryCountsCoverEveryThreeCardHand() {
+        char[] suits = {'C', 'D', 'H', 'S'};
+        ArrayList<Card> deck = new ArrayList<>();
+        for (char suit : suits) {
+            for (int value = 2; value <= 14; value++) {
+                deck.add(Card.of(suit, value));
+            }
+        }
+
+        int[] counts = new int[ThreeCardLogic.Hands.values().length];
+        int total = 0;
+        for (int a = 0; a < 52; a++) {
+            for (int b = a + 1; b < 52; b++) {
+                for (int c = b + 1; c < 52; c++) {
+                    counts[ThreeCardLogic.evalHand(hand(deck.get(a), deck.get(b), deck.get(c))).ordinal()]++;
+                    total++;
+                }
+            }
+        }
+
+        assertEquals(22100, total);
+        assertEquals(48, counts[ThreeCardLogic.Hands.STRAIGHT_FLUSH.ordinal()]);
+        assertEquals(52, counts[ThreeCardLogic.Hands.THREE_KIND.ordinal()]);
+        assertEquals(720, counts[ThreeCardLogic.Hands.STRAIGHT.ordinal()]);
+        assertEquals(1096, counts[ThreeCardLogic.Hands.FLUSH.ordinal()]);
+        assertEquals(3744, counts[ThreeCardLogic.Hands.PAIR.ordinal()]);
+        assertEquals(16440, counts[ThreeCardLogic.Hands.HIGH_CARD.ordinal()]);
+    }
+
+    @Test
+    void getHandDescriptionNamesHighCardOrHandType() {
+        assertEquals("Queen High", ThreeCardLogic.getHandDescription(
+                hand(Card.of('H', 3), Card.of('C', 12), Card.of('S', 7))));
+        assertEquals("Pair", ThreeCardLogic.getHandDescription(
+                hand(Card.of('H', 3), Card.of('C', 3), Card.of('S', 7))));
+    }
+
+    @Test
+    void compareHandsPairValueBeatsKicker() {
+        ArrayList<Card> dealer = hand(
+                Card.of('H', 8),
+                Card.of('D', 8),
+                Card.of('C', 14)
+        );  // pair of 8s, ace kicker
+
+        ArrayList<Card> player = hand(
+                Card.of('S', 9),
+                Card.of('C', 9),
+                Card.of('D', 2)
+        );  // pair of 9s
+
+        assertEquals(1, ThreeCardLogic.compareHands(dealer, player));
+    }
+
+    @Test
+    void evalHandClassifiesRepeatedCardsDirectly() {
+        ArrayList<Card> h = hand(
+                Card.of('H', 5),
+                Card.of('H', 5),
+                Card.of('H', 5)
+        );
+
+        assertEquals(ThreeCardLogic.Hands.THREE_KIND, ThreeCardLogic.evalHand(h));
+    }
+
+    // rank tests
+
+    @Test
+    void rankOrdersHandsByCategoryThenCards() {
+        int straightFlush = ThreeCardLogic.rank(hand(Card.of('H', 2), Card.of('H', 3), Card.of('H', 4)));
+        int trips = ThreeCardLogic.rank(hand(Card.of('C', 14), Card.of('D', 14), Card.of('H', 14)));
+        int straight = ThreeCardLogic.rank(hand(Card.of('C', 12), Card.of('D', 13), Card.of('H', 14)));
+        int flush = ThreeCardLogic.rank(hand(Card.of('S', 2), Card.of('S', 8), Card.of('S', 14)));
+        int pairOfNines = ThreeCardLogic.rank(hand(Card.of('C', 9), Card.of('D', 9), Card.of('H', 4)));
+        int pairOfEights = ThreeCardLogic.rank(hand(Card.of('C', 8), Card.of('D', 8), Card.of('H', 14)));
+        int aceHigh = ThreeCardLogic.rank(hand(Card.of('C', 14), Card.of('D', 5), Card.of('H', 9)));
+
+        assertTrue(straightFlush > trips);
+        assertTrue(trips > straight);
+        assertTrue(straight > flush);
+        assertTrue(flush > pairOfNines);
+        assertTrue(pairOfNines > pairOfEights);
+        assertTrue(pairOfEights > aceHigh);
+    }
+
+    @Test
+    void rankCategoryAndHighCardDecodeRank() {
+        int rank = ThreeCardLogic.rank(hand(Card.of('C', 12), Card.of('D', 5), Card.of('H', 9)));
+
+        assertEquals(ThreeCardLogic.Hands.HIGH_CARD, ThreeCardLogic.rankCategory(rank));
+        assertEquals(12, ThreeCardLogic.rankHighCard(rank));
+    }
+
+    @Test
+    void compareRanksMatchesCompareHands() {
+        ArrayList<Card> dealer = hand(Card.of('H', 4), Card.of('D', 5), Card.of('C', 6));
+        ArrayList<Card> player = hand(Card.of('H', 2), Card.of('D', 3), Card.of('S', 4));
+
+        assertEquals(ThreeCardLogic.compareHands(dealer, player),
+                ThreeCardLogic.compareRanks(ThreeCardLogic.rank(dealer), ThreeCardLogic.rank(player)));
+        assertEquals(0, ThreeCardLogic.compareRanks(ThreeCardLogic.rank(dealer), ThreeCardLogic.rank(dealer)));
+    }
+
 }
@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class WalletStoreTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void balancesSurviveReopening() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            assertEquals(200, wallets.open(1, 200));
+            assertEquals(185, wallets.add(1, -15));
+            assertEquals(215, wallets.add(1, 30));
+            assertEquals(200, wallets.open(2, 200));
+            wallets.set(2, 50);
+            assertEquals(200, wallets.open(3, 200), "A new wallet starts with the starting cash");
+        }
+        
+        try (WalletStore wallets = new WalletStore(dir)) {
+            assertEquals(3, wallets.size());
+            assertEquals(215, wallets.open(1, 200), "An existing wallet keeps its balance");
+            assertEquals(50, wallets.balance(2));
+            assertEquals(-1, wallets.balance(4));
+        }
+    }
+    
+    @Test
+    void syncPutsEveryChangeOnDisk() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            wallets.open(7, 200);
+            wallets.add(7, -25);
+            wallets.sync();
+            assertEquals(Map.of(7L, 175), WalletStore.load(dir));
+        }
+    }
+    
+    @Test
+    void concurrentChangesShareSyncs() throws Exception {
+        int threads = 8;
+        int changes = 2000;
+        try (WalletStore wallets = new WalletStore(dir)) {
+            List<Thread> players = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long playerId = t + 1;
+                wallets.open(playerId, 0);
+                players.add(new Thread(() -> {
+                    for (int i = 0; i < changes; i++) {
+                        wallets.add(playerId, 1);
+                    }
+                }));
+            }
+            players.forEach(Thread::start);
+            for (Thread player : players) {
+                player.join();
+            }
+            wallets.sync();
+            
+            assertTrue(wallets.commits() < threads * changes,
+                    "Changes should be grouped, got " + wallets.commits() + " syncs");
+            Map<Long, Integer> saved = WalletStore.load(dir);
+            for (long playerId = 1; playerId <= threads; playerId++) {
+                assertEquals(changes, saved.get(playerId));
+            }
+        }
+    }
+    
+    @Test
+    void aTornRecordAtTheEndIsIgnored() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            wallets.open(1, 200);
+            wallets.add(1, 10);
+        }
+        // A crash in the middle of appending leaves part of a record
+        Files.write(dir.resolve("wallets.log"), ByteBuffer.allocate(12).putLong(1).putInt(999).array(),
+                StandardOpenOption.APPEND);
+        
+        try (WalletStore wallets = new WalletStore(dir)) {
+            assertEquals(210, wallets.balance(1));
+        }
+        assertEquals(WalletStore.RECORD_SIZE, Files.size(dir.resolve("wallets.log")), "Reopening compacts the log");
+    }
+    
+    @Test
+    void aRecordWithABadChecksumEndsTheLog() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            wallets.open(1, 200);
+        }
+        Files.write(dir.resolve("wallets.log"), ByteBuffer.allocate(16).putLong(1).putInt(999).putInt(0).array(),
+                StandardOpenOption.APPEND);
+        
+        assertEquals(Map.of(1L, 200), WalletStore.load(dir));
+    }
+    
+    @Test
+    void debitsNeverOverdraw() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            wallets.open(1, 1000);
+            List<Thread> spenders = new ArrayList<>();
+            java.util.concurrent.atomic.AtomicInteger taken = new java.util.concurrent.atomic.AtomicInteger();
+            for (int t = 0; t < 4; t++) {
+                spenders.add(new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (wallets.debit(1, 15) >= 0) {
+                            taken.addAndGet(15);
+                        }
+                    }
+                }));
+            }
+            spenders.forEach(Thread::start);
+            for (Thread spender : spenders) {
+                spender.join();
+            }
+            
+            assertEquals(10, wallets.balance(1), "Only what the balance covered is taken");
+            assertEquals(990, taken.get());
+            assertEquals(-1, wallets.debit(1, 11));
+            assertEquals(0, wallets.debit(1, 10));
+        }
+    }
+    
+    @Test
+    void changingAnUnknownWalletIsRejected() throws Exception {
+        try (WalletStore wallets = new WalletStore(dir)) {
+            assertThrows(IllegalArgumentException.class, () -> wallets.add(9, 5));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+
+public class WriteQueueTest {
+
+    // A connected pair of PokerConnections with small socket buffers
+    private static class Pair implements AutoCloseable {
+        final PokerConnection server;
+        final PokerConnection client;
+
+        Pair(PokerConnection.Mode mode) throws Exception {
+            try (ServerSocket listener = new ServerSocket(0)) {
+                CompletableFuture<PokerConnection> accepted = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Socket socket = listener.accept();
+                        socket.setSendBufferSize(4096);
+                        return PokerConnection.accept(socket);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                client = PokerConnection.connect("127.0.0.1", listener.getLocalPort(), mode);
+                client.socket.setReceiveBufferSize(4096);
+                server = accepted.get();
+            }
+        }
+
+        // Best effort once the test is done, so try-with-resources has nothing to handle
+        @Override
+        public void close() {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            try {
+                client.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private WriteQueue start(PokerConnection connection, int high, int low, long stallMillis) {
+        WriteQueue queue = new WriteQueue(connection, high, low, stallMillis);
+        queue.start(r -> {
+            Thread thread = new Thread(r, "test-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return queue;
+    }
+
+    private PokerInfo message(int ante) {
+        PokerInfo info = new PokerInfo(ante, 0, 200);
+        info.card1 = "AS"; // keep full frames from being all defaults
+        return info;
+    }
+
+    @Test
+    void messagesArriveInOrder() throws Exception {
+        try (Pair pair = new Pair(PokerConnection.Mode.DELTA)) {
+            WriteQueue queue = start(pair.server, 64 * 1024, 16 * 1024, 10_000);
+            for (int i = 0; i < 500; i++) {
+                assertTrue(queue.offer(message(i)));
+            }
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, pair.client.read().ante);
+            }
+            queue.close();
+        }
+    }
+
+    @Test
+    void becomesWritableAgainOnceThePeerCatchesUp() throws Exception {
+        try (Pair pair = new Pair(PokerConnection.Mode.BINARY)) {
+            WriteQueue queue = start(pair.server, 8 * 1024, 1024, 60_000);
+            int sent = 0;
+            while (queue.isWritable()) {
+                assertTrue(queue.offer(message(sent++)));
+            }
+
+            for (int i = 0; i < sent; i++) {
+                assertEquals(i, pair.client.read().ante);
+            }
+            assertTrue(queue.isWritable());
+            assertEquals(0, queue.queuedBytes());
+            queue.close();
+        }
+    }
+
+    @Test
+    void dropsPeerThatStaysBehindPastTheStallTimeout() throws Exception {
+        try (Pair pair = new Pair(PokerConnection.Mode.BINARY)) {
+            WriteQueue queue = start(pair.server, 8 * 1024, 1024, 200);
+
+            // The client never reads, so the socket buffers fill and the queue stops draining
+            int sent = 0;
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (queue.put(message(sent++))) {
+                assertTrue(System.currentTimeMillis() < deadline, "Queue should have given up");
+            }
+
+            assertFalse(queue.offer(message(0)));
+            assertTrue(pair.server.socket.isClosed());
+        }
+    }
+
+    @Test
+    void rejectsInvertedWatermarks() {
+        assertThrows(IllegalArgumentException.class, () -> new WriteQueue(null, 1024, 4096, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new WriteQueue(null, 4096, 1024, 0));
+    }
+}